@@ -0,0 +1,79 @@
+package se.kth.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.kth.comparison.ComparisonMode;
+import se.kth.comparison.ValueComparator;
+import se.kth.matching.Difference;
+import se.kth.model.MethodInvocation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares recorded return values of different shapes, once on already parsed trees and once from the recorded
+ * strings as in {@link ValueComparator#compareAllReturnValues}, including parsing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparisonBenchmark {
+
+    @Param({"DEEP", "CYCLIC", "WIDE"})
+    Fixtures.Shape shape;
+
+    // Deep graphs stay below the default nesting limit of Jackson
+    @Param({"10", "100", "500"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean identical;
+
+    private JsonNode preTree;
+    private JsonNode postTree;
+    private String preJson;
+    private String postJson;
+
+    @Setup
+    public void setUp() {
+        preTree = Fixtures.graph(shape, size, 1, false);
+        postTree = Fixtures.graph(shape, size, 2, !identical);
+        preJson = preTree.toString();
+        postJson = postTree.toString();
+    }
+
+    @Benchmark
+    public List<Difference> compareTrees() {
+        return ValueComparator.compare(preTree, postTree);
+    }
+
+    @Benchmark
+    public List<Difference> compareRecordedTree() throws JsonProcessingException {
+        return ValueComparator.compareReturnValues(invocation(preJson), invocation(postJson), ComparisonMode.TREE);
+    }
+
+    @Benchmark
+    public List<Difference> compareRecordedStreaming() throws JsonProcessingException {
+        return ValueComparator.compareReturnValues(invocation(preJson), invocation(postJson),
+                ComparisonMode.STREAMING);
+    }
+
+    // A new invocation per comparison, so that its parsed trees are not cached between benchmark calls
+    private static MethodInvocation invocation(String returnValue) {
+        return new MethodInvocation("fixture.Target", "call", new StackTraceElement[0], "[]", returnValue);
+    }
+}
@@ -0,0 +1,216 @@
+package se.kth.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import se.kth.model.MethodInvocation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the fixtures of the benchmarks in the shape the semantic agent records them: values as JSON with
+ * "__meta__.hash" identities and "<circular reference: hash>" markers, invocations as one JSON object per line, and a
+ * project with JUnit test classes for the localization.
+ */
+public final class Fixtures {
+
+    public static final String TEST_PACKAGE = "fixture";
+
+    private static final JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+    // Every test method of the generated project spans the same number of lines, see writeTestProject
+    private static final int FIRST_METHOD_LINE = 6;
+    private static final int STATEMENTS_PER_METHOD = 3;
+    private static final int LINES_PER_METHOD = STATEMENTS_PER_METHOD + 4;
+
+    private Fixtures() {
+    }
+
+    public enum Shape {
+        /** A chain of nested objects */
+        DEEP,
+        /** A ring of objects referring to their predecessor and, at the end, to the first object */
+        CYCLIC,
+        /** A single object with many fields holding small objects and arrays */
+        WIDE
+    }
+
+    /**
+     * @param size     the depth, number of objects or number of fields of the graph
+     * @param run      distinguishes the object hashes of different recordings of the same graph
+     * @param diverges whether the last value of the graph is changed
+     */
+    public static JsonNode graph(Shape shape, int size, int run, boolean diverges) {
+        return switch (shape) {
+            case DEEP -> deepGraph(size, run, diverges);
+            case CYCLIC -> cyclicGraph(size, run, diverges);
+            case WIDE -> wideGraph(size, run, diverges);
+        };
+    }
+
+    private static JsonNode deepGraph(int depth, int run, boolean diverges) {
+        ObjectNode leaf = object(run, depth);
+        leaf.put("value", diverges ? -1 : depth);
+        JsonNode child = leaf;
+        for (int level = depth - 1; level >= 0; level--) {
+            ObjectNode parent = object(run, level);
+            parent.put("level", level);
+            parent.put("name", "node-" + level);
+            parent.set("child", child);
+            child = parent;
+        }
+        return child;
+    }
+
+    private static JsonNode cyclicGraph(int size, int run, boolean diverges) {
+        ObjectNode first = object(run, 0);
+        first.put("value", 0);
+        ObjectNode current = first;
+        for (int i = 1; i < size; i++) {
+            ObjectNode next = object(run, i);
+            next.put("value", diverges && i == size - 1 ? -1 : i);
+            next.put("previous", reference(run, i - 1));
+            current.set("next", next);
+            current = next;
+        }
+        current.put("next", reference(run, 0));
+        return first;
+    }
+
+    private static JsonNode wideGraph(int width, int run, boolean diverges) {
+        ObjectNode root = object(run, 0);
+        for (int i = 0; i < width; i++) {
+            ObjectNode field = nodes.objectNode();
+            field.put("text", "value-" + i);
+            field.put("flag", i % 2 == 0);
+            ArrayNode numbers = field.putArray("numbers");
+            for (int j = 0; j < 4; j++) {
+                numbers.add(diverges && i == width - 1 && j == 3 ? -1.5 : i * 4 + j + 0.5);
+            }
+            root.set("field" + i, field);
+        }
+        return root;
+    }
+
+    private static ObjectNode object(int run, int id) {
+        ObjectNode object = nodes.objectNode();
+        object.putObject("__meta__").put("hash", hash(run, id));
+        return object;
+    }
+
+    private static String reference(int run, int id) {
+        return "<circular reference: " + hash(run, id) + ">";
+    }
+
+    private static String hash(int run, int id) {
+        return Integer.toHexString(run * 1_000_003 + id * 31 + 17);
+    }
+
+    /**
+     * Invocations of a single test method. Arguments repeat every {@code distinctArguments} calls, so that the
+     * fingerprint buckets of the matching hold several candidates.
+     *
+     * @param skipEvery leave out every n-th call, so that the number of calls differs between versions, or 0 to keep
+     *                  all calls
+     */
+    public static List<MethodInvocation> invocations(int count, int distinctArguments, int skipEvery, int run) {
+        StackTraceElement[] stackTrace = {testFrame(0, 0, 0)};
+        List<MethodInvocation> invocations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (skipEvery > 0 && i % skipEvery == skipEvery - 1) {
+                continue;
+            }
+            invocations.add(new MethodInvocation("fixture.Target", "call", stackTrace,
+                    arguments(i % distinctArguments).toString(), graph(Shape.WIDE, 8, run, false).toString()));
+        }
+        return invocations;
+    }
+
+    private static JsonNode arguments(int id) {
+        ArrayNode arguments = nodes.arrayNode();
+        arguments.add("argument-" + id);
+        arguments.add(id);
+        ObjectNode options = arguments.addObject();
+        options.put("enabled", id % 3 == 0);
+        options.put("limit", id * 7);
+        return arguments;
+    }
+
+    /**
+     * Writes {@code count} invocations to a method_returns.json file in the format of the semantic agent, each one
+     * called from one of the test methods of {@link #writeTestProject}.
+     */
+    public static void writeInvocationFile(Path file, int count, int testClasses, int testMethods, Shape shape,
+                                           int size) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < count; i++) {
+                int testClass = i % testClasses;
+                int testMethod = (i / testClasses) % testMethods;
+                ObjectNode invocation = nodes.objectNode();
+                invocation.put("className", "fixture.Target");
+                invocation.put("methodName", "call");
+                ArrayNode stackTrace = invocation.putArray("stackTrace");
+                stackTrace.add(frame(new StackTraceElement("fixture.Target", "call", "Target.java", 10)));
+                stackTrace.add(frame(testFrame(testClass, testMethod, i)));
+                invocation.put("arguments", arguments(i % 64).toString());
+                invocation.put("returnValue", graph(shape, size, i, false).toString());
+                writer.write(invocation.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static JsonNode frame(StackTraceElement element) {
+        ObjectNode frame = nodes.objectNode();
+        frame.put("className", element.getClassName());
+        frame.put("methodName", element.getMethodName());
+        frame.put("fileName", element.getFileName());
+        frame.put("lineNumber", element.getLineNumber());
+        return frame;
+    }
+
+    /**
+     * @param statement which statement of the test method the frame points to, modulo the statements per method
+     * @return a frame inside the given test method of the project written by {@link #writeTestProject}
+     */
+    public static StackTraceElement testFrame(int testClass, int testMethod, int statement) {
+        String className = "FixtureTest" + testClass;
+        int line = FIRST_METHOD_LINE + testMethod * LINES_PER_METHOD + 2 + statement % STATEMENTS_PER_METHOD;
+        return new StackTraceElement(TEST_PACKAGE + "." + className, "test" + testMethod, className + ".java", line);
+    }
+
+    /**
+     * Writes a project with the given number of JUnit test classes and test methods per class below
+     * {@code projectDir/src/test/java}.
+     */
+    public static void writeTestProject(Path projectDir, int testClasses, int testMethods) throws IOException {
+        Path packageDir = projectDir.resolve("src/test/java").resolve(TEST_PACKAGE);
+        Files.createDirectories(packageDir);
+        for (int c = 0; c < testClasses; c++) {
+            StringBuilder source = new StringBuilder()
+                    .append("package ").append(TEST_PACKAGE).append(";\n")
+                    .append("\n")
+                    .append("import org.junit.jupiter.api.Test;\n")
+                    .append("\n")
+                    .append("public class FixtureTest").append(c).append(" {\n");
+            for (int m = 0; m < testMethods; m++) {
+                source.append("    @Test\n")
+                        .append("    public void test").append(m).append("() {\n");
+                for (int s = 0; s < STATEMENTS_PER_METHOD; s++) {
+                    source.append("        System.out.println(\"").append(m).append('-').append(s).append("\");\n");
+                }
+                source.append("    }\n")
+                        .append("\n");
+            }
+            source.append("}\n");
+            Files.writeString(packageDir.resolve("FixtureTest" + c + ".java"), source);
+        }
+    }
+}
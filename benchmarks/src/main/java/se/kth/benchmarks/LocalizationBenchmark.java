@@ -0,0 +1,112 @@
+package se.kth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import se.kth.extractor.SpoonLocalizer;
+import se.kth.matching.TestMethodIndex;
+import se.kth.matching.TestMethodLocalizer;
+import se.kth.matching.TestSourceIndexer;
+import se.kth.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves stack frames of a generated test project to their test methods, directly in the Spoon model through
+ * {@link SpoonLocalizer} and through the test method index of {@link TestMethodLocalizer}, and measures building the
+ * Spoon model itself and indexing only the test sources of the frames with {@link TestSourceIndexer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalizationBenchmark {
+
+    @Param({"10", "50"})
+    int testClasses;
+
+    @Param({"20"})
+    int testMethods;
+
+    private Path projectDir;
+    private SpoonLocalizer spoonLocalizer;
+    private TestMethodLocalizer testMethodLocalizer;
+    private List<StackTraceElement> frames;
+    private Set<String> frameFileNames;
+
+    @Setup
+    public void setUp() throws IOException {
+        projectDir = Files.createTempDirectory("semanticanary-localization");
+        Fixtures.writeTestProject(projectDir, testClasses, testMethods);
+        spoonLocalizer = new SpoonLocalizer(projectDir);
+        testMethodLocalizer = new TestMethodLocalizer(projectDir);
+
+        frames = new ArrayList<>();
+        for (int c = 0; c < testClasses; c++) {
+            for (int m = 0; m < testMethods; m++) {
+                for (int s = 0; s < 3; s++) {
+                    frames.add(Fixtures.testFrame(c, m, s));
+                }
+            }
+        }
+        frameFileNames = TestSourceIndexer.getFileNames(
+                Collections.singletonList(frames.toArray(new StackTraceElement[0])));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(projectDir);
+    }
+
+    @Benchmark
+    public void localizeFrames(Blackhole blackhole) {
+        for (StackTraceElement frame : frames) {
+            blackhole.consume(spoonLocalizer.localizeElementFromStackTraceElement(frame)
+                    .map(spoonLocalizer::localizeTestRootElements));
+        }
+    }
+
+    @Benchmark
+    public void resolveFramesIndexed(Blackhole blackhole) {
+        for (StackTraceElement frame : frames) {
+            blackhole.consume(testMethodLocalizer.resolveFrame(frame));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public SpoonLocalizer buildModel() {
+        return new SpoonLocalizer(projectDir);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public TestMethodIndex buildLightweightIndex() {
+        return TestSourceIndexer.index(projectDir, frameFileNames);
+    }
+}
@@ -0,0 +1,65 @@
+package se.kth.benchmarks;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.kth.matching.Matcher;
+import se.kth.matching.MatchingStrategy;
+import se.kth.model.MethodInvocation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pairs the invocations of a single test method with {@link Matcher#match}. Arguments are parsed on the first
+ * iteration and cached by the invocations afterwards, so the measurement covers the matching itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    int invocations;
+
+    @Param({"GREEDY", "ALIGNMENT"})
+    MatchingStrategy strategy;
+
+    // Every n-th call is missing in the post version, 0 for versions with the same calls
+    @Param({"0", "10"})
+    int skipEvery;
+
+    private static final String TEST_METHOD = Fixtures.TEST_PACKAGE + ".Test0#test0";
+
+    private List<Pair<String, MethodInvocation>> preVersion;
+    private List<Pair<String, MethodInvocation>> postVersion;
+
+    @Setup
+    public void setUp() {
+        preVersion = inTestMethod(Fixtures.invocations(invocations, 50, 0, 1));
+        postVersion = inTestMethod(Fixtures.invocations(invocations, 50, skipEvery, 2));
+    }
+
+    @Benchmark
+    public List<Pair<MethodInvocation, MethodInvocation>> match() {
+        return new Matcher(strategy).match(preVersion, postVersion, "");
+    }
+
+    private static List<Pair<String, MethodInvocation>> inTestMethod(List<MethodInvocation> invocations) {
+        return invocations.stream()
+                .map(invocation -> Pair.of(TEST_METHOD, invocation))
+                .toList();
+    }
+}
@@ -0,0 +1,85 @@
+package se.kth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import se.kth.matching.MethodInvocationReader;
+import se.kth.model.MethodInvocation;
+import se.kth.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reads a method_returns.json file with {@link MethodInvocationReader}. By default the file is generated, a file
+ * recorded by the semantic agent can be used instead with {@code -p recordedFile=/path/to/method_returns.json}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderBenchmark {
+
+    @Param({""})
+    String recordedFile;
+
+    // Only used for generated files
+    @Param({"10000"})
+    int invocations;
+
+    private Path generatedDir;
+    private Path invocationFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (recordedFile.isEmpty()) {
+            generatedDir = Files.createTempDirectory("semanticanary-reader");
+            invocationFile = generatedDir.resolve("project/method_returns.json");
+            Fixtures.writeInvocationFile(invocationFile, invocations, 20, 20, Fixtures.Shape.WIDE, 16);
+        } else {
+            invocationFile = Path.of(recordedFile);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (generatedDir != null) {
+            FileUtils.deleteDirectory(generatedDir);
+        }
+    }
+
+    @Benchmark
+    public void readInvocations(Blackhole blackhole) throws IOException {
+        try (Stream<MethodInvocation> invocations = MethodInvocationReader.stream(invocationFile)) {
+            invocations.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void readAndParseValues(Blackhole blackhole) throws IOException {
+        try (Stream<MethodInvocation> invocations = MethodInvocationReader.stream(invocationFile)) {
+            Iterator<MethodInvocation> iterator = invocations.iterator();
+            while (iterator.hasNext()) {
+                MethodInvocation invocation = iterator.next();
+                blackhole.consume(invocation.getArgumentsTree());
+                blackhole.consume(invocation.getReturnValueTree());
+            }
+        }
+    }
+}
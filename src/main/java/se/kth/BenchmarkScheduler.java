@@ -0,0 +1,176 @@
+package se.kth;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.model.BenchmarkResult;
+import se.kth.model.JournalEntry;
+import se.kth.model.RunMetrics;
+import se.kth.util.DockerBuild;
+import se.kth.util.ResultJournal;
+import se.kth.util.SemBUpdate;
+import se.kth.util.TargetMethods;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the updates of the benchmark on a fixed number of workers. Updates sharing the same pre and post image are
+ * grouped if their target methods can be instrumented in the same test run, so that every group is extracted once.
+ * Every group is extracted into its own instrumentation output directory, and the number of concurrently running
+ * Docker containers is capped independently of the worker count. Results are returned in the order of the given
+ * updates.
+ */
+public class BenchmarkScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkScheduler.class);
+
+    private final int workers;
+    private final int maxContainers;
+    private final boolean warmContainers;
+    private final Map<String, RunMetrics> metricsById = new ConcurrentHashMap<>();
+    private ResultJournal journal;
+
+    public BenchmarkScheduler(int workers, int maxContainers) {
+        this(workers, maxContainers, false);
+    }
+
+    /**
+     * @param warmContainers whether containers are pooled per image and reused across updates
+     */
+    public BenchmarkScheduler(int workers, int maxContainers, boolean warmContainers) {
+        if (workers < 1 || maxContainers < 1) {
+            throw new IllegalArgumentException("Workers and max containers must be at least 1");
+        }
+        this.workers = workers;
+        this.maxContainers = maxContainers;
+        this.warmContainers = warmContainers;
+    }
+
+    /**
+     * @param journal the journal every update is appended to as soon as it finished or failed, or null
+     */
+    public void setJournal(ResultJournal journal) {
+        this.journal = journal;
+    }
+
+    public List<BenchmarkResult> run(List<SemBUpdate> semBUpdates, Semanticanary semanticanary) {
+        DockerBuild.limitConcurrentContainers(maxContainers);
+        if (warmContainers) {
+            semanticanary.useContainerPool(maxContainers);
+        }
+        List<List<SemBUpdate>> groups = groupByImagePair(semBUpdates);
+        logger.info("Scheduling {} updates in {} extraction groups", semBUpdates.size(), groups.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Map<String, Boolean>>> futures = new ArrayList<>(groups.size());
+            for (List<SemBUpdate> group : groups) {
+                futures.add(executor.submit(() -> runGroup(group, semanticanary)));
+            }
+
+            Map<String, Boolean> resultsById = new HashMap<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    resultsById.putAll(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    logger.error("Updates {} failed", groups.get(i).stream().map(SemBUpdate::getId).toList(),
+                            e.getCause());
+                }
+            }
+
+            List<BenchmarkResult> results = new ArrayList<>(semBUpdates.size());
+            for (SemBUpdate semBUpdate : semBUpdates) {
+                Boolean result = resultsById.get(String.valueOf(semBUpdate.getId()));
+                if (result != null) {
+                    results.add(new BenchmarkResult(String.valueOf(semBUpdate.getId()), semBUpdate.isSemB(),
+                            semBUpdate.isGroundTruth(), result));
+                }
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+            if (warmContainers) {
+                semanticanary.closeContainerPool();
+            }
+        }
+    }
+
+    /**
+     * @return the metrics of the runs so far per update id. Updates that were extracted together share the same
+     * metrics instance.
+     */
+    public Map<String, RunMetrics> getMetricsById() {
+        return Map.copyOf(metricsById);
+    }
+
+    /**
+     * Groups the updates by their pre and post image and the target methods that can share a test run, see
+     * {@link TargetMethods#canShareTestRun}.
+     */
+    static List<List<SemBUpdate>> groupByImagePair(List<SemBUpdate> semBUpdates) {
+        Map<Pair<String, String>, List<List<SemBUpdate>>> groupsByImagePair = new LinkedHashMap<>();
+        for (SemBUpdate semBUpdate : semBUpdates) {
+            List<List<SemBUpdate>> groups = groupsByImagePair.computeIfAbsent(
+                    Pair.of(semBUpdate.getPreVersionImageName(), semBUpdate.getPostVersionImageName()),
+                    imagePair -> new ArrayList<>());
+            List<SemBUpdate> group = groups.stream()
+                    .filter(candidate -> canJoin(candidate, semBUpdate))
+                    .findFirst()
+                    .orElseGet(() -> {
+                        List<SemBUpdate> newGroup = new ArrayList<>();
+                        groups.add(newGroup);
+                        return newGroup;
+                    });
+            group.add(semBUpdate);
+        }
+        return groupsByImagePair.values().stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    private static boolean canJoin(List<SemBUpdate> group, SemBUpdate semBUpdate) {
+        String targetMethod = semBUpdate.getTargetMethod();
+        return group.stream()
+                .map(SemBUpdate::getTargetMethod)
+                .allMatch(other -> TargetMethods.canShareTestRun(targetMethod, other));
+    }
+
+    private Map<String, Boolean> runGroup(List<SemBUpdate> group, Semanticanary semanticanary) {
+        List<Integer> ids = group.stream().map(SemBUpdate::getId).toList();
+        logger.info("Starting updates: " + ids);
+        Map<String, String> targetMethodsById = new LinkedHashMap<>();
+        group.forEach(semBUpdate -> targetMethodsById.put(String.valueOf(semBUpdate.getId()),
+                semBUpdate.getTargetMethod()));
+        RunMetrics metrics = new RunMetrics();
+        targetMethodsById.keySet().forEach(id -> metricsById.put(id, metrics));
+        Map<String, Boolean> results;
+        try {
+            results = semanticanary.run("group-" + group.getFirst().getId(),
+                    group.getFirst().getPreVersionImageName(), group.getFirst().getPostVersionImageName(),
+                    targetMethodsById, metrics);
+        } catch (RuntimeException e) {
+            if (journal != null) {
+                group.forEach(semBUpdate -> journal.append(JournalEntry.failed(semBUpdate)));
+            }
+            throw e;
+        }
+        if (journal != null) {
+            group.forEach(semBUpdate -> journal.append(
+                    JournalEntry.completed(semBUpdate, results.get(String.valueOf(semBUpdate.getId())))));
+        }
+        logger.info("Finished updates: " + ids);
+        return results;
+    }
+}
@@ -3,15 +3,24 @@ package se.kth;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import se.kth.matching.LocalizationMode;
 import se.kth.model.BenchmarkResult;
+import se.kth.model.JournalEntry;
+import se.kth.model.MetricsSummary;
+import se.kth.model.RunMetrics;
 import se.kth.util.JsonUtils;
+import se.kth.util.ResultJournal;
 import se.kth.util.ResultsWriter;
 import se.kth.util.SemBUpdate;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class RunBenchmark {
 
@@ -21,19 +30,105 @@ public class RunBenchmark {
 
     private static final Path resultsPath = Paths.get("semantic-changes/src/main/resources/semb/results.json");
 
+    private static final Path metricsPath = Paths.get("semantic-changes/src/main/resources/semb/metrics");
+
+    private static final Path journalPath = Paths.get("semantic-changes/src/main/resources/semb/results.jsonl");
+
+    /** Number of updates processed concurrently, defaults to the number of available processors */
+    private static final int workers = Integer.getInteger("semanticanary.workers",
+            Runtime.getRuntime().availableProcessors());
+
+    /** Maximum number of Docker containers running at the same time */
+    private static final int maxContainers = Integer.getInteger("semanticanary.maxContainers", workers);
+
+    /** Whether containers are kept warm per image and keep their Maven repository in a volume per image */
+    private static final boolean warmContainers = Boolean.parseBoolean(
+            System.getProperty("semanticanary.warmContainers", "true"));
+
+    /** Whether detailed difference reports are written, by default only the verdict per update is computed */
+    private static final Semanticanary.ReportMode reportMode = Semanticanary.ReportMode.valueOf(
+            System.getProperty("semanticanary.reportMode", Semanticanary.ReportMode.VERDICT.name()));
+
+    /** How the recorded calls are located in the test methods, by default from the model of the whole project */
+    private static final LocalizationMode localizationMode = LocalizationMode.valueOf(
+            System.getProperty("semanticanary.localization", LocalizationMode.MODEL.name()));
+
+    /** Whether updates that already completed according to the result journal are skipped */
+    private static final boolean resume = Boolean.getBoolean("semanticanary.resume");
+
+    /** Comma-separated ids of the updates to run, all updates if not set */
+    private static final Set<String> selectedIds = getSetProperty("semanticanary.ids");
+
+    /** Comma-separated libraries, e.g. "jsoup,snakeyaml", whose updates are run, all libraries if not set */
+    private static final Set<String> selectedLibraries = getSetProperty("semanticanary.libraries");
+
+    /** Whether only the updates that failed in their last run according to the result journal are run */
+    private static final boolean onlyFailed = Boolean.getBoolean("semanticanary.onlyFailed");
+
     public static void main(String[] args) {
         CollectionType jsonType = JsonUtils.getTypeFactory().constructCollectionType(List.class, SemBUpdate.class);
         List<SemBUpdate> semBUpdates = JsonUtils.readFromFile(benchmarkFile, jsonType);
-        List<BenchmarkResult> results = new LinkedList<>();
+        ResultJournal journal = new ResultJournal(journalPath);
+        List<SemBUpdate> selectedUpdates = selectUpdates(semBUpdates, journal.readLatest());
+        logger.info("Running {} of {} updates", selectedUpdates.size(), semBUpdates.size());
+
         Semanticanary semanticanary = new Semanticanary();
-        for (SemBUpdate semBUpdate : semBUpdates) {
-            logger.info("Starting update: " + semBUpdate.getId());
-            boolean result = semanticanary.run(String.valueOf(semBUpdate.getId()), semBUpdate.getPreVersionImageName(),
-                    semBUpdate.getPostVersionImageName(), semBUpdate.getTargetMethod());
-            results.add(new BenchmarkResult(String.valueOf(semBUpdate.getId()), semBUpdate.isSemB(),
-                    semBUpdate.isGroundTruth(), result));
-        }
-
-        ResultsWriter.saveBenchmarkResult(results, resultsPath);
+        semanticanary.setReportMode(reportMode);
+        semanticanary.setLocalizationMode(localizationMode);
+        BenchmarkScheduler scheduler = new BenchmarkScheduler(workers, maxContainers, warmContainers);
+        scheduler.setJournal(journal);
+        scheduler.run(selectedUpdates, semanticanary);
+
+        ResultsWriter.saveBenchmarkResult(collectResults(semBUpdates, journal.readLatest()), resultsPath);
+        saveMetrics(scheduler.getMetricsById());
+    }
+
+    private static List<SemBUpdate> selectUpdates(List<SemBUpdate> semBUpdates, Map<String, JournalEntry> journalEntries) {
+        return semBUpdates.stream()
+                .filter(semBUpdate -> selectedIds.isEmpty() ||
+                        selectedIds.contains(String.valueOf(semBUpdate.getId())))
+                .filter(semBUpdate -> selectedLibraries.isEmpty() ||
+                        selectedLibraries.contains(semBUpdate.getLibrary()))
+                .filter(semBUpdate -> {
+                    JournalEntry entry = journalEntries.get(String.valueOf(semBUpdate.getId()));
+                    if (onlyFailed) {
+                        return entry != null && !entry.isCompleted();
+                    }
+                    return !resume || entry == null || !entry.isCompleted();
+                })
+                .toList();
+    }
+
+    /**
+     * @return the results of all updates of the dataset that completed in their last run, in the order of the dataset,
+     * including the results of earlier runs for updates that were not run this time
+     */
+    private static List<BenchmarkResult> collectResults(List<SemBUpdate> semBUpdates,
+                                                        Map<String, JournalEntry> journalEntries) {
+        return semBUpdates.stream()
+                .map(semBUpdate -> journalEntries.get(String.valueOf(semBUpdate.getId())))
+                .filter(Objects::nonNull)
+                .filter(JournalEntry::isCompleted)
+                .map(JournalEntry::toBenchmarkResult)
+                .toList();
+    }
+
+    private static Set<String> getSetProperty(String name) {
+        String value = System.getProperty(name, "");
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(element -> !element.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Writes the metrics of every update and their distribution over all extractions, counting updates that were
+     * extracted together only once.
+     */
+    private static void saveMetrics(Map<String, RunMetrics> metricsById) {
+        metricsById.forEach((id, metrics) -> ResultsWriter.saveMetrics(metrics, metricsPath.resolve(id + ".json")));
+        MetricsSummary summary = new MetricsSummary(metricsById.values().stream().distinct().toList());
+        ResultsWriter.saveMetricsSummary(summary, metricsPath.resolve("summary.json"));
+        logger.info("{}", summary);
     }
 }
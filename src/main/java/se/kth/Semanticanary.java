@@ -4,32 +4,51 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.dockerjava.api.model.HostConfig;
 import org.apache.commons.lang3.tuple.Pair;
 import picocli.CommandLine;
+import se.kth.comparison.ComparisonMode;
 import se.kth.comparison.ValueComparator;
+import se.kth.instrumentation.ContainerPool;
+import se.kth.instrumentation.DockerExecutionBackend;
+import se.kth.instrumentation.ExecutionBackend;
+import se.kth.instrumentation.ExtractionCache;
 import se.kth.instrumentation.HostConfigBuilder;
+import se.kth.instrumentation.LocalExecutionBackend;
 import se.kth.instrumentation.ProjectExtractor;
 import se.kth.matching.Difference;
+import se.kth.matching.LocalizationMode;
 import se.kth.matching.Matcher;
+import se.kth.matching.MatchingStrategy;
+import se.kth.matching.TestMethodIndexCache;
+import se.kth.matching.UnmatchedInvocation;
 import se.kth.model.MethodInvocation;
+import se.kth.model.RunMetrics;
 import se.kth.util.Config;
 import se.kth.util.DockerBuild;
 import se.kth.util.FileUtils;
 import se.kth.util.ResultsWriter;
+import se.kth.util.TargetMethods;
 
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 public class Semanticanary implements Callable<Integer> {
 
     @CommandLine.Option(
             names = {"-pre", "--preVersionImage"},
-            description = "Name of the docker image of the pre-update version",
+            description = "Name of the docker image of the pre-update version, or the path to its project directory " +
+                    "with the local backend",
             required = true)
     String preVersionImage;
 
     @CommandLine.Option(
             names = {"-post", "--postVersionImage"},
-            description = "Name of the docker image of the post-update version",
+            description = "Name of the docker image of the post-update version, or the path to its project directory" +
+                    " with the local backend",
             required = true)
     String postVersionImage;
 
@@ -41,54 +60,337 @@ public class Semanticanary implements Callable<Integer> {
 
     @CommandLine.Option(
             names = {"-m", "--targetMethod"},
-            description = "Fully qualified name (\"fqn.your.TargetClass:targetMethod\") of the method to instrument",
+            description = "Fully qualified name (\"fqn.your.TargetClass:targetMethod\") of the method to instrument, " +
+                    "can be repeated to check several methods of the same update",
             required = true)
-    String targetMethod;
+    List<String> targetMethods;
 
     @CommandLine.Option(
             names = {"-o", "--outputPath"},
             description = "Path to the directory where the output should be stored")
     Path outputPath;
 
+    @CommandLine.Option(
+            names = {"--noCache"},
+            description = "Always extract the images instead of reusing cached extractions")
+    boolean noCache;
+
+    @CommandLine.Option(
+            names = {"-b", "--backend"},
+            description = "Where the tests are run: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    Backend backend = Backend.DOCKER;
+
+    @CommandLine.Option(
+            names = {"--matching"},
+            description = "How calls are paired if the versions made a different number of calls within a test: " +
+                    "${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    MatchingStrategy matchingStrategy = MatchingStrategy.GREEDY;
+
+    @CommandLine.Option(
+            names = {"--localization"},
+            description = "How the recorded calls are located in the test methods: ${COMPLETION-CANDIDATES} " +
+                    "(default: ${DEFAULT-VALUE})")
+    LocalizationMode localizationMode = LocalizationMode.MODEL;
+
+    @CommandLine.Option(
+            names = {"--comparison"},
+            description = "How the return values of paired calls are compared: ${COMPLETION-CANDIDATES} " +
+                    "(default: ${DEFAULT-VALUE})")
+    ComparisonMode comparisonMode = ComparisonMode.STREAMING;
+
+    @CommandLine.Option(
+            names = {"-r", "--report"},
+            description = "What is reported per target method: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    ReportMode reportMode = ReportMode.FULL;
+
+    public enum Backend {
+        /** In containers of the given Docker images */
+        DOCKER,
+        /** Directly on the host, in the given project directories */
+        LOCAL
+    }
+
+    public enum ReportMode {
+        /** All differences of all calls, written to a report in the output directory */
+        FULL,
+        /** Only whether there are differences, the comparison stops at the first one and no report is written */
+        VERDICT
+    }
+
+    /**
+     * Prefix of the Maven repository volumes of pooled containers. Docker seeds a named volume from the image only
+     * while it is empty, so every image gets its own volumes, and every live container of an image its own volume,
+     * as concurrent Maven runs must not share a local repository.
+     */
+    private static final String MAVEN_REPOSITORY_VOLUME_PREFIX = "semanticanary-m2-";
+
+    /** Number of hex digits of the image id used in volume names */
+    private static final int VOLUME_IMAGE_ID_LENGTH = 12;
+
+    /** Number of test method indexes kept in memory, each one is small compared to the model it was built from */
+    private static final int MAX_INDEXES_IN_MEMORY = 64;
+
+    private ContainerPool containerPool;
+
+    private TestMethodIndexCache testMethodIndexCache;
+
     @Override
     public Integer call() throws Exception {
-        boolean differencesFound = this.run("1", this.preVersionImage, this.postVersionImage, this.targetMethod);
+        boolean differencesFound;
+        RunMetrics metrics = new RunMetrics();
+        if (this.targetMethods.size() == 1) {
+            differencesFound = this.run("1", this.preVersionImage, this.postVersionImage,
+                    Map.of("1", this.targetMethods.getFirst()), metrics).get("1");
+        } else {
+            differencesFound = this.runTargetMethods("1", this.preVersionImage, this.postVersionImage,
+                    this.targetMethods, metrics).containsValue(true);
+        }
+        if (outputPath != null) {
+            ResultsWriter.saveMetrics(metrics, outputPath.resolve("1-metrics.json"));
+        }
         return differencesFound ? 1 : 0;
     }
 
     public boolean run(String id, String preImageName, String postImageName, String targetMethod) {
-        DockerBuild dockerBuild = new DockerBuild();
-        Path extractedProjectsOutputDir = Config.getTmpDirPath().resolve("instrumentation-output").resolve(id);
+        return run(id, preImageName, postImageName, Map.of(id, targetMethod)).get(id);
+    }
+
+    /**
+     * Extracts both images with the given target methods instrumented, in as few test runs as the semantic agent
+     * allows, and checks every target method for differences separately.
+     *
+     * @param extractionId       the id of the shared extraction, used for the instrumentation output directories
+     * @param targetMethodsById  the target method to check per result id, several ids may share a target method
+     * @return whether differences were found, per result id
+     */
+    public Map<String, Boolean> run(String extractionId, String preImageName, String postImageName,
+                                    Map<String, String> targetMethodsById) {
+        return run(extractionId, preImageName, postImageName, targetMethodsById, new RunMetrics());
+    }
+
+    /**
+     * @param metrics collects the time spent per phase and the counters of the run
+     * @see #run(String, String, String, Map)
+     */
+    public Map<String, Boolean> run(String extractionId, String preImageName, String postImageName,
+                                    Map<String, String> targetMethodsById, RunMetrics metrics) {
+        Map<String, List<List<Difference>>> differencesByTargetMethod = extractAndCompareInTestRuns(extractionId,
+                preImageName, postImageName, targetMethodsById.values(), metrics);
+
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        targetMethodsById.forEach((id, targetMethod) -> {
+            List<List<Difference>> differences = differencesByTargetMethod.get(targetMethod);
+            boolean differencesFound = hasDifferences(differences);
+            if (differencesFound && reportMode == ReportMode.FULL) {
+                metrics.time(RunMetrics.Phase.RESULT_WRITING,
+                        () -> ResultsWriter.saveDifferences(differences, outputPath.resolve(id + ".json")));
+            }
+            results.put(id, differencesFound);
+        });
+        return results;
+    }
+
+    /**
+     * Checks several target methods and writes one report, containing the differences per target method, if any
+     * differences were found. The target methods are instrumented in as few test runs per version as the semantic
+     * agent allows, see {@link TargetMethods#splitIntoTestRuns}.
+     *
+     * @return whether differences were found, per target method
+     */
+    public Map<String, Boolean> runTargetMethods(String id, String preImageName, String postImageName,
+                                                 Collection<String> targetMethods) {
+        return runTargetMethods(id, preImageName, postImageName, targetMethods, new RunMetrics());
+    }
+
+    /**
+     * @param metrics collects the time spent per phase and the counters of the run
+     * @see #runTargetMethods(String, String, String, Collection)
+     */
+    public Map<String, Boolean> runTargetMethods(String id, String preImageName, String postImageName,
+                                                 Collection<String> targetMethods, RunMetrics metrics) {
+        Map<String, List<List<Difference>>> differencesByTargetMethod = extractAndCompareInTestRuns(id,
+                preImageName, postImageName, targetMethods, metrics);
+
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        differencesByTargetMethod.forEach((targetMethod, differences) ->
+                results.put(targetMethod, hasDifferences(differences)));
+        if (results.containsValue(true) && reportMode == ReportMode.FULL) {
+            metrics.time(RunMetrics.Phase.RESULT_WRITING, () -> ResultsWriter.saveDifferencesByTargetMethod(
+                    differencesByTargetMethod, outputPath.resolve(id + ".json")));
+        }
+        return results;
+    }
+
+    public void setReportMode(ReportMode reportMode) {
+        this.reportMode = reportMode;
+    }
+
+    public void setLocalizationMode(LocalizationMode localizationMode) {
+        this.localizationMode = localizationMode;
+    }
+
+    /**
+     * Reuses warm containers per image for all following runs, with Maven repository volumes that are kept per image
+     * across runs. The pool must be closed with {@link #closeContainerPool()}.
+     *
+     * @param maxContainers the maximum number of pooled containers alive at the same time
+     */
+    public synchronized void useContainerPool(int maxContainers) {
+        if (containerPool == null) {
+            DockerBuild dockerBuild = new DockerBuild();
+            containerPool = new ContainerPool(dockerBuild, (imageName, slot) ->
+                    new HostConfigBuilder(semanticAgentPath.toString())
+                            .withMavenRepositoryVolume(getMavenRepositoryVolume(dockerBuild.getImageId(imageName), slot))
+                            .build(), maxContainers);
+        }
+    }
+
+    /**
+     * @param imageId the content-addressed id of the image, e.g. "sha256:..."
+     * @param slot    the slot of the container among the live containers of the image
+     */
+    private static String getMavenRepositoryVolume(String imageId, int slot) {
+        String digest = imageId.substring(imageId.indexOf(':') + 1);
+        return MAVEN_REPOSITORY_VOLUME_PREFIX + digest.substring(0, Math.min(VOLUME_IMAGE_ID_LENGTH, digest.length()))
+                + "-" + slot;
+    }
+
+    public synchronized void closeContainerPool() {
+        if (containerPool != null) {
+            containerPool.close();
+            containerPool = null;
+        }
+    }
+
+    private synchronized ContainerPool getContainerPool() {
+        return containerPool;
+    }
+
+    /**
+     * @return the test method index cache shared by all runs, or null if caching is disabled
+     */
+    private synchronized TestMethodIndexCache getTestMethodIndexCache() {
+        if (testMethodIndexCache == null && !noCache) {
+            testMethodIndexCache = new TestMethodIndexCache(Config.getTmpDirPath().resolve("test-method-index-cache"),
+                    MAX_INDEXES_IN_MEMORY);
+        }
+        return testMethodIndexCache;
+    }
+
+    /**
+     * Extracts and compares every group of target methods that can share a test run separately. The first group uses
+     * the given extraction id, the following ones get a numbered suffix.
+     */
+    private Map<String, List<List<Difference>>> extractAndCompareInTestRuns(String extractionId, String preImageName,
+                                                                            String postImageName,
+                                                                            Collection<String> targetMethods,
+                                                                            RunMetrics metrics) {
+        Map<String, List<List<Difference>>> differencesByTargetMethod = new LinkedHashMap<>();
+        List<Set<String>> testRuns = TargetMethods.splitIntoTestRuns(targetMethods);
+        for (int i = 0; i < testRuns.size(); i++) {
+            String testRunId = i == 0 ? extractionId : extractionId + "-" + i;
+            differencesByTargetMethod.putAll(extractAndCompare(testRunId, preImageName, postImageName,
+                    testRuns.get(i), metrics));
+        }
+        return differencesByTargetMethod;
+    }
+
+    private Map<String, List<List<Difference>>> extractAndCompare(String extractionId, String preImageName,
+                                                                  String postImageName, Set<String> targetMethods,
+                                                                  RunMetrics metrics) {
+        Path extractedProjectsOutputDir = Config.getTmpDirPath().resolve("instrumentation-output")
+                .resolve(extractionId);
         FileUtils.ensureDirectoryExists(extractedProjectsOutputDir.getParent());
-        HostConfigBuilder configBuilder = new HostConfigBuilder(semanticAgentPath.toString());
-        HostConfig hostConfig = configBuilder.build();
-        ProjectExtractor projectExtractor = new ProjectExtractor(dockerBuild, extractedProjectsOutputDir, hostConfig,
-                targetMethod);
+        ExtractionCache extractionCache = noCache ? null
+                : new ExtractionCache(Config.getTmpDirPath().resolve("extraction-cache"), semanticAgentPath);
+        ProjectExtractor projectExtractor = new ProjectExtractor(createExecutionBackend(metrics),
+                extractedProjectsOutputDir, targetMethods, extractionCache);
+        projectExtractor.setMetrics(metrics);
 
         Path preOutputPath = projectExtractor.extract(preImageName);
         Path postOutputPath = projectExtractor.extract(postImageName);
 
-        List<Pair<MethodInvocation, MethodInvocation>> pairs = new Matcher().readAndMatch(preOutputPath,
-                postOutputPath);
+        Matcher matcher = new Matcher(matchingStrategy);
+        matcher.setMetrics(metrics);
+        matcher.setTestMethodIndexCache(getTestMethodIndexCache());
+        matcher.setLocalizationMode(localizationMode);
+        Map<String, List<Pair<MethodInvocation, MethodInvocation>>> pairsByTargetMethod =
+                matcher.readAndMatch(preOutputPath, postOutputPath, targetMethods);
+        printUnmatchedInvocations(matcher.getUnmatchedInvocations());
 
+        long comparisonStart = System.nanoTime();
         try {
-            List<List<Difference>> differences = ValueComparator.compareAllReturnValues(pairs);
-            if (differences.stream()
-                    .anyMatch(differences1 -> !differences1.isEmpty())) {
-                System.out.println("Differences found:");
-                differences.forEach(differences1 -> differences1.forEach(System.out::println));
-                ResultsWriter.saveDifferences(differences, outputPath.resolve(id + ".json"));
-                return true;
-            } else {
-                System.out.println("No Differences found");
-                return false;
-            }
+            Map<String, List<List<Difference>>> differencesByTargetMethod = switch (reportMode) {
+                case FULL -> ValueComparator.compareAllReturnValues(pairsByTargetMethod, comparisonMode);
+                case VERDICT -> findFirstDifferences(pairsByTargetMethod);
+            };
+            metrics.addTime(RunMetrics.Phase.COMPARISON, System.nanoTime() - comparisonStart);
+            pairsByTargetMethod.values().forEach(pairs -> metrics.add(RunMetrics.Counter.PAIRS_COMPARED,
+                    pairs.size()));
+            differencesByTargetMethod.values().forEach(differences -> differences.forEach(
+                    differences1 -> metrics.add(RunMetrics.Counter.DIFFERENCES_FOUND, differences1.size())));
+            differencesByTargetMethod.forEach(this::printDifferences);
+            return differencesByTargetMethod;
         } catch (JsonProcessingException e) {
             e.printStackTrace();
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * @return per target method, the first difference found as the only difference, or no differences at all
+     */
+    private Map<String, List<List<Difference>>> findFirstDifferences(
+            Map<String, List<Pair<MethodInvocation, MethodInvocation>>> pairsByTargetMethod) {
+        Map<String, List<List<Difference>>> differencesByTargetMethod = new LinkedHashMap<>();
+        pairsByTargetMethod.forEach((targetMethod, pairs) -> differencesByTargetMethod.put(targetMethod,
+                ValueComparator.findFirstDifference(pairs, comparisonMode)
+                        .map(difference -> List.of(List.of(difference)))
+                        .orElse(List.of())));
+        return differencesByTargetMethod;
+    }
+
+    private ExecutionBackend createExecutionBackend(RunMetrics metrics) {
+        return switch (backend) {
+            case DOCKER -> {
+                HostConfigBuilder configBuilder = new HostConfigBuilder(semanticAgentPath.toString());
+                HostConfig hostConfig = configBuilder.build();
+                DockerExecutionBackend dockerBackend = new DockerExecutionBackend(new DockerBuild(), hostConfig);
+                dockerBackend.setContainerPool(getContainerPool());
+                dockerBackend.setMetrics(metrics);
+                yield dockerBackend;
+            }
+            case LOCAL -> {
+                LocalExecutionBackend localBackend = new LocalExecutionBackend(semanticAgentPath);
+                localBackend.setMetrics(metrics);
+                yield localBackend;
+            }
+        };
+    }
+
+    private void printUnmatchedInvocations(List<UnmatchedInvocation> unmatchedInvocations) {
+        unmatchedInvocations.stream()
+                .collect(Collectors.groupingBy(UnmatchedInvocation::targetMethod,
+                        LinkedHashMap::new, Collectors.groupingBy(UnmatchedInvocation::version, Collectors.counting())))
+                .forEach((targetMethod, counts) -> System.out.println("Unmatched invocations of " + targetMethod +
+                        ": " + counts.getOrDefault(UnmatchedInvocation.Version.PRE, 0L) + " pre, " +
+                        counts.getOrDefault(UnmatchedInvocation.Version.POST, 0L) + " post"));
+    }
+
+    private void printDifferences(String targetMethod, List<List<Difference>> differences) {
+        if (hasDifferences(differences)) {
+            System.out.println("Differences found for " + targetMethod + ":");
+            differences.forEach(differences1 -> differences1.forEach(System.out::println));
+        } else {
+            System.out.println("No Differences found for " + targetMethod);
+        }
+    }
+
+    private static boolean hasDifferences(List<List<Difference>> differences) {
+        return differences.stream()
+                .anyMatch(differences1 -> !differences1.isEmpty());
+    }
+
     public static void main(String[] args) {
         int exitCode = new CommandLine(new Semanticanary()).execute(args);
         System.exit(exitCode);
@@ -0,0 +1,11 @@
+package se.kth.comparison;
+
+/**
+ * How the recorded return values of a matched pair of invocations are compared.
+ */
+public enum ComparisonMode {
+    /** Parse both values into trees and diff them */
+    TREE,
+    /** Scan both values token by token and only build trees if they are not identical */
+    STREAMING
+}
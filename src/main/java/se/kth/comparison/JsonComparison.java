@@ -0,0 +1,260 @@
+package se.kth.comparison;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import se.kth.matching.Difference;
+import se.kth.matching.DifferenceType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single comparison of two JSON trees recorded by the semantic agent. Objects carrying a "__meta__.hash" are
+ * resolved through "<circular reference: hash>" markers, and every pair of objects is compared at most once.
+ * <p>
+ * Differences are appended to one result list in traversal order. Paths are kept as a stack of segments and only
+ * turned into strings when a difference is reported.
+ */
+final class JsonComparison {
+
+    private static final String CIRCULAR_REFERENCE_PREFIX = "<circular reference:";
+
+    private final JsonNode root1;
+    private final JsonNode root2;
+    private final Map<String, JsonNode> referenceMap1;
+    private final Map<String, JsonNode> referenceMap2;
+    private final boolean firstDifferenceOnly;
+
+    private final List<Difference> differences = new ArrayList<>();
+    private final LongHashSet visitedPairs = new LongHashSet();
+    private final Map<String, Integer> hashIds1 = new HashMap<>();
+    private final Map<String, Integer> hashIds2 = new HashMap<>();
+
+    // Path segments, a segment is either a field name or an array index
+    private String[] fieldSegments = new String[32];
+    private int[] indexSegments = new int[32];
+    private int depth;
+
+    JsonComparison(JsonNode root1, JsonNode root2) {
+        this(root1, root2, false);
+    }
+
+    /**
+     * @param firstDifferenceOnly whether to stop the walk as soon as the first difference is found
+     */
+    JsonComparison(JsonNode root1, JsonNode root2, boolean firstDifferenceOnly) {
+        this.root1 = root1;
+        this.root2 = root2;
+        this.firstDifferenceOnly = firstDifferenceOnly;
+        this.referenceMap1 = buildReferenceMap(root1);
+        this.referenceMap2 = buildReferenceMap(root2);
+    }
+
+    List<Difference> compare() {
+        compareNodes(root1, root2);
+        return differences;
+    }
+
+    private void compareNodes(JsonNode node1, JsonNode node2) {
+        if (node1 == null && node2 == null) {
+            return;
+        } else if (node1 == null || node2 == null) {
+            report("One of the nodes is null", DifferenceType.OTHER);
+            return;
+        }
+
+        if (node1.getNodeType() != node2.getNodeType()) {
+            report("Node types differ (" + node1.getNodeType() + " vs " + node2.getNodeType() + ")",
+                    DifferenceType.TYPE_CHANGED);
+            return;
+        }
+
+        if (node1.isObject()) {
+            compareObjects(node1, node2);
+        } else if (node1.isArray()) {
+            if (node1.size() != node2.size()) {
+                report("Array sizes differ (" + node1.size() + " vs " + node2.size() + ")",
+                        DifferenceType.VALUE_CHANGED);
+            } else {
+                for (int i = 0; i < node1.size() && !isDone(); i++) {
+                    pushIndex(i);
+                    compareNodes(node1.get(i), node2.get(i));
+                    depth--;
+                }
+            }
+        } else if (!scalarsEqual(node1, node2)) {
+            report("Values differ (" + node1.asText() + " vs " + node2.asText() + ")", DifferenceType.VALUE_CHANGED);
+        }
+    }
+
+    private void compareObjects(JsonNode node1, JsonNode node2) {
+        // Track visited pairs to prevent infinite loops
+        String hash1 = extractHash(node1);
+        String hash2 = extractHash(node2);
+        if (hash1 != null && hash2 != null && !visitedPairs.add(pairKey(hash1, hash2))) {
+            return; // Already compared these objects
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> fields1 = node1.fields();
+        while (fields1.hasNext() && !isDone()) {
+            Map.Entry<String, JsonNode> field = fields1.next();
+            String fieldName = field.getKey();
+            if (fieldName.equals("hash")) {
+                continue;
+            }
+            JsonNode child1 = field.getValue();
+            JsonNode child2 = node2.get(fieldName);
+
+            pushField(fieldName);
+            if (isCircularReference(child1)) {
+                JsonNode resolved1 = referenceMap1.get(extractHashFromReference(child1.textValue()));
+                JsonNode resolved2 = isCircularReference(child2)
+                        ? referenceMap2.get(extractHashFromReference(child2.textValue()))
+                        : null;
+                compareNodes(resolved1, resolved2);
+            } else {
+                compareNodes(child1, child2);
+            }
+            depth--;
+        }
+
+        // Check for fields in node2 not present in node1
+        Iterator<String> fieldNames2 = node2.fieldNames();
+        while (fieldNames2.hasNext() && !isDone()) {
+            String fieldName = fieldNames2.next();
+            if (!fieldName.equals("hash") && !node1.has(fieldName)) {
+                report(fieldName + ": Field is missing in the first object", DifferenceType.FIELD_ADDED);
+            }
+        }
+    }
+
+    /**
+     * Compares two scalar nodes of the same type without converting them to text where possible. Two scalars are
+     * equal exactly if their textual representations are equal.
+     */
+    private static boolean scalarsEqual(JsonNode node1, JsonNode node2) {
+        switch (node1.getNodeType()) {
+            case STRING:
+                return node1.textValue().equals(node2.textValue());
+            case BOOLEAN:
+                return node1.booleanValue() == node2.booleanValue();
+            case NULL:
+            case MISSING:
+                return true;
+            case BINARY:
+                try {
+                    return Arrays.equals(node1.binaryValue(), node2.binaryValue());
+                } catch (java.io.IOException e) {
+                    return node1.asText().equals(node2.asText());
+                }
+            case NUMBER:
+                return numbersEqual(node1, node2);
+            default:
+                return node1.asText().equals(node2.asText());
+        }
+    }
+
+    private static boolean numbersEqual(JsonNode node1, JsonNode node2) {
+        if (node1.isIntegralNumber() && node2.isIntegralNumber()) {
+            if (node1.canConvertToLong() && node2.canConvertToLong()) {
+                return node1.longValue() == node2.longValue();
+            }
+            return node1.bigIntegerValue().equals(node2.bigIntegerValue());
+        }
+        if (node1.numberType() == node2.numberType()) {
+            return switch (node1.numberType()) {
+                case DOUBLE -> Double.compare(node1.doubleValue(), node2.doubleValue()) == 0;
+                case FLOAT -> Float.compare(node1.floatValue(), node2.floatValue()) == 0;
+                case BIG_DECIMAL -> node1.decimalValue().equals(node2.decimalValue());
+                default -> node1.asText().equals(node2.asText());
+            };
+        }
+        return node1.asText().equals(node2.asText());
+    }
+
+    private boolean isDone() {
+        return firstDifferenceOnly && !differences.isEmpty();
+    }
+
+    private void report(String message, DifferenceType type) {
+        differences.add(new Difference(currentPath(), message, type));
+    }
+
+    private String currentPath() {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            if (fieldSegments[i] != null) {
+                path.append('/').append(fieldSegments[i]);
+            } else {
+                path.append('[').append(indexSegments[i]).append(']');
+            }
+        }
+        return path.toString();
+    }
+
+    private void pushField(String fieldName) {
+        ensureSegmentCapacity();
+        fieldSegments[depth] = fieldName;
+        depth++;
+    }
+
+    private void pushIndex(int index) {
+        ensureSegmentCapacity();
+        fieldSegments[depth] = null;
+        indexSegments[depth] = index;
+        depth++;
+    }
+
+    private void ensureSegmentCapacity() {
+        if (depth == fieldSegments.length) {
+            fieldSegments = Arrays.copyOf(fieldSegments, depth * 2);
+            indexSegments = Arrays.copyOf(indexSegments, depth * 2);
+        }
+    }
+
+    private long pairKey(String hash1, String hash2) {
+        long id1 = hashIds1.computeIfAbsent(hash1, hash -> hashIds1.size() + 1);
+        long id2 = hashIds2.computeIfAbsent(hash2, hash -> hashIds2.size() + 1);
+        return (id1 << 32) | id2;
+    }
+
+    private static boolean isCircularReference(JsonNode node) {
+        return node != null && node.isTextual() && node.textValue().startsWith(CIRCULAR_REFERENCE_PREFIX);
+    }
+
+    private static Map<String, JsonNode> buildReferenceMap(JsonNode root) {
+        Map<String, JsonNode> referenceMap = new HashMap<>();
+        buildReferenceMapHelper(root, referenceMap);
+        return referenceMap;
+    }
+
+    private static void buildReferenceMapHelper(JsonNode node, Map<String, JsonNode> referenceMap) {
+        if (node.isObject()) {
+            String hash = extractHash(node);
+            if (hash != null) {
+                referenceMap.put(hash, node);
+            }
+
+            node.fields().forEachRemaining(entry -> buildReferenceMapHelper(entry.getValue(), referenceMap));
+        } else if (node.isArray()) {
+            for (JsonNode child : node) {
+                buildReferenceMapHelper(child, referenceMap);
+            }
+        }
+    }
+
+    private static String extractHash(JsonNode node) {
+        JsonNode meta = node.get("__meta__");
+        if (meta != null && meta.has("hash")) {
+            return meta.get("hash").asText();
+        }
+        return null;
+    }
+
+    private static String extractHashFromReference(String reference) {
+        return reference.replace("<circular reference: ", "").replace(">", "").trim();
+    }
+}
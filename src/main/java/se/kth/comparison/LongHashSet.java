@@ -0,0 +1,64 @@
+package se.kth.comparison;
+
+/**
+ * Minimal open-addressing hash set of non-zero longs, avoiding boxing on hot comparison paths.
+ */
+final class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int size;
+
+    LongHashSet() {
+        this.keys = new long[16];
+    }
+
+    /**
+     * @param key a non-zero key
+     * @return true if the key was not contained yet
+     */
+    boolean add(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Zero keys are not supported");
+        }
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            grow();
+        }
+        if (insert(keys, key)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean insert(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = spread(key) & mask;
+        while (table[slot] != 0) {
+            if (table[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = key;
+        return true;
+    }
+
+    private void grow() {
+        long[] newKeys = new long[keys.length * 2];
+        for (long key : keys) {
+            if (key != 0) {
+                insert(newKeys, key);
+            }
+        }
+        keys = newKeys;
+    }
+
+    private static int spread(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -2,10 +2,8 @@ package se.kth.comparison;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.tuple.Pair;
 import se.kth.matching.Difference;
-import se.kth.matching.DifferenceType;
 import se.kth.model.MethodInvocation;
 
 import java.util.*;
@@ -13,160 +11,102 @@ import java.util.*;
 public class ValueComparator {
 
     public static List<List<Difference>> compareAllReturnValues(List<Pair<MethodInvocation, MethodInvocation>> pairs) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        List<List<Difference>> differences = new ArrayList<>();
-        for (Pair<MethodInvocation, MethodInvocation> pair : pairs) {
-            MethodInvocation left = pair.getLeft();
-            MethodInvocation right = pair.getRight();
-            try {
-                JsonNode leftReturnValue = mapper.readTree(left.getReturnValue());
-                JsonNode rightReturnValue = mapper.readTree(right.getReturnValue());
-                differences.add(compare(leftReturnValue, rightReturnValue));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-        return differences;
+        return compareAllReturnValues(pairs, ComparisonMode.TREE);
     }
 
-    public static List<List<Difference>> compareArguments(MethodInvocation preArguments,
-                                                          MethodInvocation postArguments) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        List<List<Difference>> differences = new ArrayList<>();
-        JsonNode preArgumentsNode = mapper.readTree(preArguments.getArguments());
-        JsonNode postArgumentsNode = mapper.readTree(postArguments.getArguments());
-        differences.add(compare(preArgumentsNode, postArgumentsNode));
-        return differences;
+    /**
+     * Compares the return values of all pairs in parallel. Every pair is compared independently, the differences are
+     * returned in the order of the given pairs. Pairs whose return values cannot be parsed are left out.
+     */
+    public static List<List<Difference>> compareAllReturnValues(List<Pair<MethodInvocation, MethodInvocation>> pairs,
+                                                                ComparisonMode mode) throws JsonProcessingException {
+        return pairs.parallelStream()
+                .map(pair -> compareReturnValuesOrNull(pair, mode))
+                .filter(Objects::nonNull)
+                .toList();
     }
 
-    public static List<Difference> compare(JsonNode node1, JsonNode node2) {
-        Map<String, JsonNode> referenceMap1 = buildReferenceMap(node1);
-        Map<String, JsonNode> referenceMap2 = buildReferenceMap(node2);
-
-        Set<String> visitedPairs = new HashSet<>();
-
-        return compareJson(node1, node2, "", referenceMap1, referenceMap2, visitedPairs);
-    }
-
-    private static Map<String, JsonNode> buildReferenceMap(JsonNode root) {
-        Map<String, JsonNode> referenceMap = new HashMap<>();
-        buildReferenceMapHelper(root, referenceMap);
-        return referenceMap;
-    }
-
-    private static void buildReferenceMapHelper(JsonNode node, Map<String, JsonNode> referenceMap) {
-        if (node.isObject()) {
-            JsonNode meta = node.get("__meta__");
-            if (meta != null && meta.has("hash")) {
-                String hash = meta.get("hash").asText();
-                referenceMap.put(hash, node);
-            }
-
-            node.fields().forEachRemaining(entry -> buildReferenceMapHelper(entry.getValue(), referenceMap));
-        } else if (node.isArray()) {
-            for (JsonNode child : node) {
-                buildReferenceMapHelper(child, referenceMap);
-            }
+    private static List<Difference> compareReturnValuesOrNull(Pair<MethodInvocation, MethodInvocation> pair,
+                                                              ComparisonMode mode) {
+        try {
+            return compareReturnValues(pair.getLeft(), pair.getRight(), mode);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
         }
     }
 
-    public static List<Difference> compareJson(JsonNode node1, JsonNode node2, String path,
-                                               Map<String, JsonNode> referenceMap1,
-                                               Map<String, JsonNode> referenceMap2,
-                                               Set<String> visitedPairs) {
-        List<Difference> differences = new ArrayList<>();
-
-        if (node1 == null && node2 == null) {
-            return differences;
-        } else if (node1 == null || node2 == null) {
-            differences.add(new Difference(path, "One of the nodes is null", DifferenceType.OTHER));
-            return differences;
+    /**
+     * Compares the return values of the matched invocations of every target method separately.
+     *
+     * @return the differences per target method, in the order of the given map
+     */
+    public static Map<String, List<List<Difference>>> compareAllReturnValues(
+            Map<String, List<Pair<MethodInvocation, MethodInvocation>>> pairsByTargetMethod, ComparisonMode mode)
+            throws JsonProcessingException {
+        Map<String, List<List<Difference>>> differencesByTargetMethod = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Pair<MethodInvocation, MethodInvocation>>> entry :
+                pairsByTargetMethod.entrySet()) {
+            differencesByTargetMethod.put(entry.getKey(), compareAllReturnValues(entry.getValue(), mode));
         }
+        return differencesByTargetMethod;
+    }
 
-        if (!node1.getNodeType().equals(node2.getNodeType())) {
-            differences.add(new Difference(path,
-                    "Node types differ (" + node1.getNodeType() + " vs " + node2.getNodeType() + ")",
-                    DifferenceType.TYPE_CHANGED));
-            return differences;
-        }
-
-        if (node1.isObject()) {
-            // Track visited pairs to prevent infinite loops
-            String hash1 = extractHash(node1);
-            String hash2 = extractHash(node2);
-
-            if (hash1 != null && hash2 != null) {
-                String pairKey = hash1 + "|" + hash2;
-                if (visitedPairs.contains(pairKey)) {
-                    return differences; // Already compared these objects
-                }
-                visitedPairs.add(pairKey);
-            }
-
-            Iterator<String> fieldNames1 = node1.fieldNames();
-            while (fieldNames1.hasNext()) {
-                String fieldName = fieldNames1.next();
-
-                if (!fieldName.equals("hash")) {
-                    JsonNode child1 = node1.get(fieldName);
-                    JsonNode child2 = node2.get(fieldName);
-
-                    if (child1 != null && child1.isTextual() && child1.asText().startsWith("<circular reference:")) {
-                        String refHash1 = extractHashFromReference(child1.asText());
-                        JsonNode resolved1 = referenceMap1.get(refHash1);
-
-                        String refHash2 = child2 != null && child2.isTextual() && child2.asText().startsWith(
-                                "<circular reference:")
-                                ? extractHashFromReference(child2.asText())
-                                : null;
-                        JsonNode resolved2 = refHash2 != null ? referenceMap2.get(refHash2) : null;
-
-                        differences.addAll(compareJson(resolved1, resolved2, path + "/" + fieldName, referenceMap1,
-                                referenceMap2, visitedPairs));
-                    } else {
-                        differences.addAll(compareJson(child1, child2, path + "/" + fieldName, referenceMap1,
-                                referenceMap2, visitedPairs));
-                    }
-                }
-            }
+    /**
+     * Compares the return values of two invocations. In {@link ComparisonMode#STREAMING} mode the values are only
+     * parsed into trees if a token scan finds that they are not identical.
+     */
+    public static List<Difference> compareReturnValues(MethodInvocation left, MethodInvocation right,
+                                                       ComparisonMode mode) throws JsonProcessingException {
+        return compareReturnValues(left, right, mode, false);
+    }
 
-            // Check for fields in node2 not present in node1
-            Iterator<String> fieldNames2 = node2.fieldNames();
-            while (fieldNames2.hasNext()) {
-                String fieldName = fieldNames2.next();
-                if (!fieldName.equals("hash") && !node1.has(fieldName)) {
-                    differences.add(new Difference(path, fieldName + ": Field is missing in the first object",
-                            DifferenceType.FIELD_ADDED));
-                }
-            }
-        } else if (node1.isArray()) {
-            if (node1.size() != node2.size()) {
-                differences.add(new Difference(path, "Array sizes differ (" + node1.size() + " vs " + node2.size() +
-                        ")", DifferenceType.VALUE_CHANGED));
-            } else {
-                for (int i = 0; i < node1.size(); i++) {
-                    differences.addAll(compareJson(node1.get(i), node2.get(i), path + "[" + i + "]", referenceMap1,
-                            referenceMap2, visitedPairs));
+    /**
+     * Looks for the first difference between the return values of the given pairs, without computing any further
+     * differences once one is found.
+     *
+     * @return the first difference in pair order, or empty if the return values of all pairs are equal
+     */
+    public static Optional<Difference> findFirstDifference(List<Pair<MethodInvocation, MethodInvocation>> pairs,
+                                                           ComparisonMode mode) {
+        for (Pair<MethodInvocation, MethodInvocation> pair : pairs) {
+            try {
+                List<Difference> differences = compareReturnValues(pair.getLeft(), pair.getRight(), mode, true);
+                if (!differences.isEmpty()) {
+                    return Optional.of(differences.getFirst());
                 }
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-        } else if (!node1.asText().equals(node2.asText())) {
-            differences.add(new Difference(path, "Values differ (" + node1.asText() + " vs " + node2.asText() + ")",
-                    DifferenceType.VALUE_CHANGED));
         }
-
-        return differences;
+        return Optional.empty();
     }
 
-    private static String extractHash(JsonNode node) {
-        JsonNode meta = node.get("__meta__");
-        if (meta != null && meta.has("hash")) {
-            return meta.get("hash").asText();
+    private static List<Difference> compareReturnValues(MethodInvocation left, MethodInvocation right,
+                                                        ComparisonMode mode, boolean firstDifferenceOnly)
+            throws JsonProcessingException {
+        if (mode == ComparisonMode.STREAMING
+                && StreamingComparison.identical(left.getReturnValue(), right.getReturnValue())) {
+            return new ArrayList<>();
         }
-        return null;
+        return new JsonComparison(left.getReturnValueTree(), right.getReturnValueTree(), firstDifferenceOnly)
+                .compare();
     }
 
-    private static String extractHashFromReference(String reference) {
-        return reference.replace("<circular reference: ", "").replace(">", "").trim();
+    public static List<List<Difference>> compareArguments(MethodInvocation preArguments,
+                                                          MethodInvocation postArguments) throws JsonProcessingException {
+        List<List<Difference>> differences = new ArrayList<>();
+        JsonNode preArgumentsNode = preArguments.getArgumentsTree();
+        JsonNode postArgumentsNode = postArguments.getArgumentsTree();
+        differences.add(compare(preArgumentsNode, postArgumentsNode));
+        return differences;
+    }
+
+    /**
+     * Compares two recorded values and returns their differences in traversal order.
+     */
+    public static List<Difference> compare(JsonNode node1, JsonNode node2) {
+        return new JsonComparison(node1, node2).compare();
     }
 }
 
@@ -2,8 +2,10 @@ package se.kth.extractor;
 
 import spoon.Launcher;
 import spoon.reflect.CtModel;
+import spoon.reflect.cu.SourcePosition;
 import spoon.reflect.declaration.CtAnnotation;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtMethod;
 import spoon.reflect.declaration.CtModifiable;
 import spoon.reflect.visitor.filter.TypeFilter;
 import spoon.support.reflect.declaration.CtAnnotationImpl;
@@ -18,63 +20,96 @@ import java.util.stream.Stream;
 
 public class SpoonLocalizer {
 
+    private static final List<String> TEST_ANNOTATION_NAMES = List.of("Test", "ParameterizedTest", "RepeatedTest",
+            "After", "Before", "AfterEach", "BeforeEach", "AfterAll", "BeforeAll");
+
     private final CtModel model;
 
+    /**
+     * Outermost non-implicit element per file name and line, built once after the model is built so that stack
+     * frames can be resolved without traversing the whole model.
+     */
+    private final Map<String, Map<Integer, CtElement>> positionIndex;
+
     public SpoonLocalizer(Path projectPath) {
+        this(buildModel(projectPath));
+    }
+
+    /**
+     * Localizes in an already built model, e.g. one of only some of the sources of a project.
+     */
+    public SpoonLocalizer(CtModel model) {
+        this.model = model;
+        this.positionIndex = buildPositionIndex(this.model);
+    }
+
+    private static CtModel buildModel(Path projectPath) {
         Launcher launcher = new Launcher();
         launcher.addInputResource(projectPath.toString());
         launcher.buildModel();
-        this.model = launcher.getModel();
+        return launcher.getModel();
+    }
+
+    private static Map<String, Map<Integer, CtElement>> buildPositionIndex(CtModel model) {
+        Map<String, Map<Integer, List<CtElement>>> elementsByPosition = new HashMap<>();
+        for (CtElement ctElement : model.getElements(new TypeFilter<>(CtElement.class))) {
+            SourcePosition position = ctElement.getPosition();
+            if (!ctElement.isImplicit() && position.isValidPosition() && position.getFile() != null) {
+                elementsByPosition.computeIfAbsent(position.getFile().getName(), fileName -> new HashMap<>())
+                        .computeIfAbsent(position.getLine(), line -> new ArrayList<>())
+                        .add(ctElement);
+            }
+        }
+
+        Map<String, Map<Integer, CtElement>> index = new HashMap<>(elementsByPosition.size());
+        elementsByPosition.forEach((fileName, lines) -> {
+            Map<Integer, CtElement> outermostByLine = new HashMap<>(lines.size());
+            lines.forEach((line, elements) -> extractParent(elements)
+                    .ifPresent(parent -> outermostByLine.put(line, parent)));
+            index.put(fileName, outermostByLine);
+        });
+        return index;
+    }
+
+    /**
+     * @return the outermost element per file name and line
+     */
+    public Map<String, Map<Integer, CtElement>> getPositionIndex() {
+        return Collections.unmodifiableMap(positionIndex);
     }
 
     public Optional<CtElement> localizeElementFromStackTraceElement(StackTraceElement stackTraceElement) {
-        int lineNumber = stackTraceElement.getLineNumber();
-        String fileName = stackTraceElement.getFileName();
-        List<CtElement> result = new LinkedList<>();
-
-        this.model.getElements(new TypeFilter<>(CtElement.class)).stream()
-                .forEach(ctElement -> {
-                    if (!ctElement.isImplicit() && ctElement.getPosition().isValidPosition()) {
-                        if (ctElement.getPosition().getFile().getName().equals(fileName) &&
-                                ctElement.getPosition().getLine() == lineNumber) {
-                            result.add(ctElement);
-                        }
-                    }
-                });
-        Optional<CtElement> parent = extractParent(result);
-        return parent;
+        Map<Integer, CtElement> lines = this.positionIndex.get(stackTraceElement.getFileName());
+        if (lines == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(lines.get(stackTraceElement.getLineNumber()));
     }
 
     public List<CtElement> localizeTestRootElementsFromStackTraceElement(StackTraceElement stackTraceElement) {
-        int lineNumber = stackTraceElement.getLineNumber();
-        String fileName = stackTraceElement.getFileName();
-        List<CtElement> result = new LinkedList<>();
-
-        this.model.getElements(new TypeFilter<>(CtElement.class)).stream()
-                .forEach(ctElement -> {
-                    if (!ctElement.isImplicit() && ctElement.getPosition().isValidPosition()) {
-                        if (ctElement.getPosition().getFile().getName().equals(fileName) &&
-                                ctElement.getPosition().getLine() == lineNumber) {
-                            result.add(ctElement);
-                        }
-                    }
-                });
-        Optional<CtElement> parent = extractParent(result);
+        Optional<CtElement> parent = localizeElementFromStackTraceElement(stackTraceElement);
         if (parent.isPresent()) {
-            CtElement parentElement = parent.get();
-            if (parentElement instanceof CtFieldImpl<?>) {
-                return List.of(parentElement);
-            }
-            if (parentElement instanceof CtAnnotationImpl<?>) {
-                return List.of(parentElement);
-            }
-            return getTestMethod(parentElement);
+            return localizeTestRootElements(parent.get());
         } else {
             System.out.println("no parent found");
         }
         return null;
     }
 
+    /**
+     * Resolves the test root elements of an element that has already been localized, e.g. through
+     * {@link #localizeElementFromStackTraceElement(StackTraceElement)}.
+     */
+    public List<CtElement> localizeTestRootElements(CtElement parentElement) {
+        if (parentElement instanceof CtFieldImpl<?>) {
+            return List.of(parentElement);
+        }
+        if (parentElement instanceof CtAnnotationImpl<?>) {
+            return List.of(parentElement);
+        }
+        return getTestMethod(parentElement);
+    }
+
     private List<CtElement> getTestMethod(CtElement element) {
         if (element == null) {
             return null;
@@ -99,13 +134,11 @@ public class SpoonLocalizer {
         return Stream.concat(staticFields, annotations).toList();
     }
 
-    private boolean isAnnotatedAsTest(CtMethodImpl method) {
-        List<String> testAnnotationNames = List.of("Test", "ParameterizedTest", "RepeatedTest", "After", "Before",
-                "AfterEach", "BeforeEach", "AfterAll", "BeforeAll");
+    private static boolean isAnnotatedAsTest(CtMethod<?> method) {
         List<CtAnnotation<? extends Annotation>> annotations = method.getAnnotations();
         return annotations.stream()
                 .map(CtAnnotation::getName)
-                .anyMatch(testAnnotationNames::contains);
+                .anyMatch(TEST_ANNOTATION_NAMES::contains);
     }
 
     public Set<CtElement> getAllChildren(List<CtElement> elements) {
@@ -0,0 +1,219 @@
+package se.kth.instrumentation;
+
+import com.github.dockerjava.api.model.HostConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.util.ContainerRuntime;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Pool of warm containers keyed by image. A container is started once per image and reused for later extractions of
+ * the same image. The project directory is snapshotted when a container is started and restored whenever the
+ * container is handed back, so every extraction starts from the state of the image. At most {@code maxContainers}
+ * containers are alive at the same time; if the pool is full, an idle container of another image is removed.
+ * <p>
+ * Every live container of an image gets a slot number that is unique among the live containers of that image, so
+ * that per-container resources like a Maven repository volume can be reused across containers without two running
+ * containers sharing them.
+ */
+public class ContainerPool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContainerPool.class);
+
+    private static final String[] SNAPSHOT_PROJECT = {"sh", "-c", "cp -a /project /project-pristine"};
+    private static final String[] RESET_PROJECT = {"sh", "-c", "rm -rf /project && cp -a /project-pristine /project"};
+
+    private final ContainerRuntime containerRuntime;
+    private final BiFunction<String, Integer, HostConfig> hostConfigs;
+    private final int maxContainers;
+
+    // Guarded by this
+    private final Map<String, Deque<String>> idleContainersByImage = new HashMap<>();
+    private final Map<String, String> imageByContainer = new HashMap<>();
+    private final Map<String, BitSet> usedSlotsByImage = new HashMap<>();
+    private final Map<String, Integer> slotByContainer = new HashMap<>();
+    private int liveContainers;
+    private boolean closed;
+
+    /**
+     * @param hostConfigs the host config a container is started with, by image name and slot of the container
+     */
+    public ContainerPool(ContainerRuntime containerRuntime, BiFunction<String, Integer, HostConfig> hostConfigs,
+                         int maxContainers) {
+        if (maxContainers < 1) {
+            throw new IllegalArgumentException("The pool must allow at least one container");
+        }
+        this.containerRuntime = containerRuntime;
+        this.hostConfigs = hostConfigs;
+        this.maxContainers = maxContainers;
+    }
+
+    /**
+     * Hands out a warm container of the given image, starting a new one if none is idle. Blocks while the pool is
+     * full and no idle container can be removed.
+     *
+     * @return the id of a container with a pristine project directory
+     * @throws IllegalStateException if the pool has been closed
+     */
+    public String acquire(String imageName) throws InterruptedException {
+        String evictedContainer = null;
+        int slot;
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new IllegalStateException("The container pool has been closed");
+                }
+                Deque<String> idleContainers = idleContainersByImage.get(imageName);
+                if (idleContainers != null && !idleContainers.isEmpty()) {
+                    return idleContainers.pop();
+                }
+                if (liveContainers < maxContainers) {
+                    liveContainers++;
+                    break;
+                }
+                evictedContainer = pollIdleContainer();
+                if (evictedContainer != null) {
+                    // The evicted container's place in the pool is handed over to the new one
+                    forget(evictedContainer);
+                    break;
+                }
+                wait();
+            }
+            slot = takeSlot(imageName);
+        }
+
+        if (evictedContainer != null) {
+            containerRuntime.removeContainer(evictedContainer);
+        }
+        String containerId = null;
+        try {
+            containerId = containerRuntime.startIdleContainer(imageName, hostConfigs.apply(imageName, slot));
+            containerRuntime.executeCheckedInContainer(containerId, SNAPSHOT_PROJECT);
+            synchronized (this) {
+                imageByContainer.put(containerId, imageName);
+                slotByContainer.put(containerId, slot);
+            }
+            logger.info("Started pooled container {} for {}", containerId, imageName);
+            return containerId;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                usedSlotsByImage.get(imageName).clear(slot);
+                liveContainers--;
+                notifyAll();
+            }
+            if (containerId != null) {
+                containerRuntime.removeContainer(containerId);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Resets the project directory of the container and makes it available for the next extraction of its image.
+     * Containers that can not be reset, and containers released after the pool was closed, are removed.
+     */
+    public void release(String containerId) {
+        String imageName;
+        boolean poolClosed;
+        synchronized (this) {
+            imageName = imageByContainer.get(containerId);
+            poolClosed = closed;
+        }
+        if (imageName == null) {
+            logger.warn("Container {} does not belong to the pool", containerId);
+            return;
+        }
+        if (poolClosed) {
+            discard(containerId);
+            return;
+        }
+        try {
+            containerRuntime.executeCheckedInContainer(containerId, RESET_PROJECT);
+        } catch (RuntimeException e) {
+            logger.warn("Could not reset container {}, removing it", containerId, e);
+            discard(containerId);
+            return;
+        }
+        synchronized (this) {
+            if (!closed) {
+                idleContainersByImage.computeIfAbsent(imageName, image -> new ArrayDeque<>()).push(containerId);
+                notifyAll();
+                return;
+            }
+        }
+        discard(containerId);
+    }
+
+    /**
+     * Removes a container from the pool instead of reusing it.
+     */
+    public void discard(String containerId) {
+        synchronized (this) {
+            if (!forget(containerId)) {
+                return;
+            }
+            idleContainersByImage.values().forEach(idleContainers -> idleContainers.remove(containerId));
+            liveContainers--;
+            notifyAll();
+        }
+        containerRuntime.removeContainer(containerId);
+    }
+
+    private int takeSlot(String imageName) {
+        BitSet usedSlots = usedSlotsByImage.computeIfAbsent(imageName, image -> new BitSet());
+        int slot = usedSlots.nextClearBit(0);
+        usedSlots.set(slot);
+        return slot;
+    }
+
+    /**
+     * Drops a container from the pool's bookkeeping and frees its slot.
+     *
+     * @return whether the container belonged to the pool
+     */
+    private boolean forget(String containerId) {
+        String imageName = imageByContainer.remove(containerId);
+        if (imageName == null) {
+            return false;
+        }
+        Integer slot = slotByContainer.remove(containerId);
+        if (slot != null) {
+            usedSlotsByImage.get(imageName).clear(slot);
+        }
+        return true;
+    }
+
+    private String pollIdleContainer() {
+        for (Deque<String> idleContainers : idleContainersByImage.values()) {
+            if (!idleContainers.isEmpty()) {
+                return idleContainers.pollLast();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes all idle containers. Containers that are still in use are removed when they are released or discarded.
+     */
+    @Override
+    public void close() {
+        List<String> idleContainers = new ArrayList<>();
+        synchronized (this) {
+            closed = true;
+            idleContainersByImage.values().forEach(idleContainers::addAll);
+            idleContainersByImage.clear();
+            idleContainers.forEach(this::forget);
+            liveContainers -= idleContainers.size();
+            notifyAll();
+        }
+        idleContainers.forEach(containerRuntime::removeContainer);
+    }
+}
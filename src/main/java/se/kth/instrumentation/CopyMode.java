@@ -0,0 +1,26 @@
+package se.kth.instrumentation;
+
+import java.util.function.Predicate;
+
+/**
+ * Which files of the project are fetched after the tests ran.
+ */
+public enum CopyMode {
+    /** The whole project directory, including build output and logs */
+    FULL,
+    /** Only the Java sources outside of build output directories and the recorded method invocations */
+    SOURCES;
+
+    static final String METHOD_INVOCATION_FILE = "project/method_returns.json";
+
+    /**
+     * @return a filter on paths relative to the output directory, e.g. "project/src/main/java/Foo.java"
+     */
+    Predicate<String> entryFilter() {
+        return switch (this) {
+            case FULL -> entryName -> true;
+            case SOURCES -> entryName -> entryName.equals(METHOD_INVOCATION_FILE) ||
+                    (entryName.endsWith(".java") && !entryName.contains("/target/"));
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package se.kth.instrumentation;
+
+import com.github.dockerjava.api.model.HostConfig;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.model.RunMetrics;
+import se.kth.util.DockerBuild;
+import se.kth.util.TargetMethods;
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Runs the tests inside a container of the project's Docker image, in which the project is located at "/project".
+ */
+public class DockerExecutionBackend implements ExecutionBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(DockerExecutionBackend.class);
+
+    private final DockerBuild dockerBuild;
+    private final HostConfig hostConfig;
+    @Setter
+    private CopyMode copyMode = CopyMode.SOURCES;
+    /** Pool to take warm containers from, if null a fresh container is started for every execution */
+    @Setter
+    private ContainerPool containerPool;
+    @Setter
+    private RunMetrics metrics = new RunMetrics();
+
+    public DockerExecutionBackend(DockerBuild dockerBuild, HostConfig hostConfig) {
+        this.dockerBuild = dockerBuild;
+        this.hostConfig = hostConfig;
+    }
+
+    @Override
+    public String getProjectDigest(String imageName) {
+        ensureImageExists(imageName);
+        return dockerBuild.getImageId(imageName);
+    }
+
+    @Override
+    public String getOutputDirectoryName(String imageName) {
+        return imageName.split("/")[2];
+    }
+
+    @Override
+    public Execution prepare(String imageName) {
+        ensureImageExists(imageName);
+        return new DockerExecution(metrics.time(RunMetrics.Phase.CONTAINER_START, () -> startContainer(imageName)));
+    }
+
+    private void ensureImageExists(String imageName) {
+        long start = System.nanoTime();
+        try {
+            dockerBuild.ensureBaseMavenImageExists(imageName);
+        } catch (InterruptedException e) {
+            logger.warn(e.getMessage());
+            throw new RuntimeException(e);
+        } finally {
+            metrics.addTime(RunMetrics.Phase.IMAGE_PULL, System.nanoTime() - start);
+        }
+    }
+
+    private String startContainer(String imageName) {
+        if (containerPool == null) {
+            return dockerBuild.startSpinningContainer(imageName, hostConfig);
+        }
+        try {
+            return containerPool.acquire(imageName);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn(e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    private class DockerExecution implements Execution {
+
+        private final String containerId;
+
+        private DockerExecution(String containerId) {
+            this.containerId = containerId;
+        }
+
+        @Override
+        public void runTests(Collection<String> targetMethods) {
+            String[] entryPoint = String.format("mvn test -l output.log -DargLine=\"-javaagent:/instrumentation/" +
+                    "semantic-agent-1.0-SNAPSHOT.jar=%s\"", TargetMethods.toAgentArgument(targetMethods)).split(" ");
+            dockerBuild.executeInContainer(containerId, entryPoint);
+        }
+
+        @Override
+        public Path fetchOutputs(Path outputDir) {
+            long filesCopied = dockerBuild.getFilesCopied();
+            long bytesCopied = dockerBuild.getBytesCopied();
+            Path containerOutputDir = dockerBuild.copyProjectFromContainer(containerId, "project", outputDir,
+                    copyMode.entryFilter());
+            metrics.add(RunMetrics.Counter.FILES_COPIED, dockerBuild.getFilesCopied() - filesCopied);
+            metrics.add(RunMetrics.Counter.BYTES_COPIED, dockerBuild.getBytesCopied() - bytesCopied);
+            if (containerOutputDir == null) {
+                logger.warn("Failed to extract project from {} to local files {}", containerId, outputDir);
+            } else {
+                logger.info("Successfully extracted project from {} to local files {}", containerId, outputDir);
+            }
+            return containerOutputDir;
+        }
+
+        @Override
+        public void close() {
+            if (containerPool != null) {
+                containerPool.release(containerId);
+            } else {
+                dockerBuild.removeContainer(containerId);
+            }
+        }
+    }
+}
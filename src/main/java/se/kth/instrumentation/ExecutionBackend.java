@@ -0,0 +1,42 @@
+package se.kth.instrumentation;
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * Runs the tests of a project version with the semantic agent attached and fetches the recorded invocations together
+ * with the sources of the project. The fetched output directory contains the project in a directory "project", with
+ * the recorded invocations in "project/method_returns.json".
+ */
+public interface ExecutionBackend {
+
+    /**
+     * @param project the project version, e.g. a Docker image name or a local project directory
+     * @return a content-addressed digest of the project version, or null if it can not be identified for caching
+     */
+    String getProjectDigest(String project);
+
+    /**
+     * @return the name of the directory the outputs of the project version are fetched into
+     */
+    String getOutputDirectoryName(String project);
+
+    Execution prepare(String project);
+
+    /**
+     * A prepared project version. Closing the execution releases all resources held for it.
+     */
+    interface Execution extends AutoCloseable {
+
+        void runTests(Collection<String> targetMethods);
+
+        /**
+         * @param outputDir the directory to fetch the outputs to
+         * @return the directory the outputs were fetched to, or null if fetching failed
+         */
+        Path fetchOutputs(Path outputDir);
+
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,137 @@
+package se.kth.instrumentation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.util.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Local, content-addressed cache of extracted instrumentation outputs. An entry is keyed by the id (digest) of the
+ * image, the hash of the semantic agent jar and the set of instrumented target methods, and contains the recorded
+ * method invocations together with the Java sources of the project, in the same layout as a fresh extraction.
+ */
+public class ExtractionCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionCache.class);
+
+    private static final String METHOD_INVOCATION_FILE = "method_returns.json";
+
+    private final Path cacheDir;
+    private final String agentHash;
+
+    public ExtractionCache(Path cacheDir, Path agentPath) {
+        this.cacheDir = cacheDir;
+        this.agentHash = hashFile(agentPath);
+        FileUtils.ensureDirectoryExists(cacheDir);
+    }
+
+    public String key(String imageDigest, Collection<String> targetMethods) {
+        MessageDigest digest = newDigest();
+        digest.update(imageDigest.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+        digest.update(agentHash.getBytes(StandardCharsets.UTF_8));
+        for (String targetMethod : new TreeSet<>(targetMethods)) {
+            digest.update((byte) '\n');
+            digest.update(targetMethod.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return the directory of the cached extraction, or empty if there is no entry for the key
+     */
+    public Optional<Path> lookup(String key) {
+        Path entry = cacheDir.resolve(key);
+        if (Files.isDirectory(entry)) {
+            logger.info("Extraction cache hit for {}", key);
+            return Optional.of(entry);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Stores the recorded method invocations and the Java sources of an extracted project. The entry is written to a
+     * temporary directory first and moved into place afterwards, so that readers never observe a partial entry.
+     *
+     * @param key          the key of the extraction
+     * @param extractedDir the directory the project was extracted to
+     * @return the directory of the cache entry
+     */
+    public Path store(String key, Path extractedDir) {
+        Path entry = cacheDir.resolve(key);
+        Path tmpEntry = cacheDir.resolve(key + ".tmp-" + UUID.randomUUID());
+        try (Stream<Path> files = Files.walk(extractedDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).filter(this::isCached)::iterator) {
+                Path target = tmpEntry.resolve(extractedDir.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target);
+            }
+            Files.createDirectories(tmpEntry);
+            moveIntoPlace(tmpEntry, entry);
+            logger.info("Stored extraction {} in cache", key);
+            return entry;
+        } catch (IOException e) {
+            logger.warn("Could not store extraction {} in cache", key, e);
+            try {
+                FileUtils.deleteDirectory(tmpEntry);
+            } catch (IOException ignored) {
+                // Left over for manual cleanup
+            }
+            return extractedDir;
+        }
+    }
+
+    private boolean isCached(Path file) {
+        String fileName = file.getFileName().toString();
+        return fileName.equals(METHOD_INVOCATION_FILE) || fileName.endsWith(".java");
+    }
+
+    private static void moveIntoPlace(Path tmpEntry, Path entry) throws IOException {
+        try {
+            Files.move(tmpEntry, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (!Files.isDirectory(entry)) {
+                throw e;
+            }
+            // Stored concurrently by another extraction of the same key
+            FileUtils.deleteDirectory(tmpEntry);
+        }
+    }
+
+    private static String hashFile(Path path) {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
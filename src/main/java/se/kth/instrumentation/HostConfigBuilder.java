@@ -4,21 +4,46 @@ import com.github.dockerjava.api.model.HostConfig;
 import com.github.dockerjava.api.model.Mount;
 import com.github.dockerjava.api.model.MountType;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class HostConfigBuilder {
 
+    private static final String MAVEN_REPOSITORY_PATH = "/root/.m2";
+
     private final String agentPath;
+    private String mavenRepositoryVolume;
 
     public HostConfigBuilder(String agentPath) {
         this.agentPath = agentPath;
     }
 
+    /**
+     * Mounts a named volume as the local Maven repository of the container, so that resolved dependencies are kept
+     * across runs. A new volume is seeded with the repository of the image the first container is started from, so a
+     * volume must only be used with a single image, and by one running container at a time.
+     *
+     * @param volumeName the name of the Docker volume
+     * @return this builder
+     */
+    public HostConfigBuilder withMavenRepositoryVolume(String volumeName) {
+        this.mavenRepositoryVolume = volumeName;
+        return this;
+    }
+
     public HostConfig build() {
+        List<Mount> mounts = new ArrayList<>();
+        mounts.add(new Mount()
+                .withSource(agentPath.toString())
+                .withTarget("/instrumentation/semantic-agent-1.0-SNAPSHOT.jar")
+                .withType(MountType.BIND));
+        if (mavenRepositoryVolume != null) {
+            mounts.add(new Mount()
+                    .withSource(mavenRepositoryVolume)
+                    .withTarget(MAVEN_REPOSITORY_PATH)
+                    .withType(MountType.VOLUME));
+        }
         return HostConfig.newHostConfig()
-                .withMounts(List.of(new Mount()
-                        .withSource(agentPath.toString())
-                        .withTarget("/instrumentation/semantic-agent-1.0-SNAPSHOT.jar")
-                        .withType(MountType.BIND)));
+                .withMounts(mounts);
     }
 }
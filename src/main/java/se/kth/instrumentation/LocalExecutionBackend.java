@@ -0,0 +1,147 @@
+package se.kth.instrumentation;
+
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.model.RunMetrics;
+import se.kth.util.FileUtils;
+import se.kth.util.TargetMethods;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Runs the tests directly on the host, in already checked-out project directories. The project is given as the path
+ * to its directory, and Maven has to be available on the host. There is no isolation between executions.
+ */
+public class LocalExecutionBackend implements ExecutionBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalExecutionBackend.class);
+
+    /** Number of bytes of the path hash used in output directory names */
+    private static final int PATH_HASH_BYTES = 6;
+
+    private final Path agentPath;
+    @Setter
+    private CopyMode copyMode = CopyMode.SOURCES;
+    @Setter
+    private String mavenExecutable = "mvn";
+    @Setter
+    private RunMetrics metrics = new RunMetrics();
+
+    public LocalExecutionBackend(Path agentPath) {
+        this.agentPath = agentPath.toAbsolutePath();
+    }
+
+    /**
+     * Local project directories can change between runs, so their outputs are never cached.
+     */
+    @Override
+    public String getProjectDigest(String projectDir) {
+        return null;
+    }
+
+    /**
+     * @return the name of the project directory followed by a hash of its full path, so that checkouts with the same
+     * name, e.g. "/a/jsoup" and "/b/jsoup", are fetched into different directories
+     */
+    @Override
+    public String getOutputDirectoryName(String projectDir) {
+        Path projectPath = Paths.get(projectDir).toAbsolutePath().normalize();
+        return projectPath.getFileName() + "-" + hashPath(projectPath);
+    }
+
+    private static String hashPath(Path projectPath) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(projectPath.toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, PATH_HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Execution prepare(String projectDir) {
+        Path projectPath = Paths.get(projectDir).toAbsolutePath().normalize();
+        if (!Files.isRegularFile(projectPath.resolve("pom.xml"))) {
+            throw new IllegalArgumentException("No Maven project found in " + projectPath);
+        }
+        return new LocalExecution(projectPath);
+    }
+
+    private class LocalExecution implements Execution {
+
+        private final Path projectPath;
+
+        private LocalExecution(Path projectPath) {
+            this.projectPath = projectPath;
+        }
+
+        @Override
+        public void runTests(Collection<String> targetMethods) {
+            try {
+                // Remove the invocations recorded by a previous run of the same directory
+                Files.deleteIfExists(projectPath.resolve("method_returns.json"));
+                String argLine = "-DargLine=-javaagent:%s=%s".formatted(agentPath,
+                        TargetMethods.toAgentArgument(targetMethods));
+                Process process = new ProcessBuilder(mavenExecutable, "test", "-B", "-l", "output.log", argLine)
+                        .directory(projectPath.toFile())
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start();
+                int exitCode = process.waitFor();
+                logger.info("Tests of {} finished with exit code {}", projectPath, exitCode);
+            } catch (IOException e) {
+                logger.error("Could not run the tests of {}", projectPath, e);
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Path fetchOutputs(Path outputDir) {
+            Predicate<String> entryFilter = copyMode.entryFilter();
+            try {
+                // Outputs of an earlier run, e.g. its recorded invocations, must not be mistaken for this run's
+                FileUtils.deleteDirectory(outputDir);
+            } catch (IOException e) {
+                logger.error("Could not clear the output directory {}", outputDir, e);
+                return null;
+            }
+            try (Stream<Path> files = Files.walk(projectPath)) {
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    String entryName = "project/" + projectPath.relativize(file).toString().replace('\\', '/');
+                    if (entryFilter.test(entryName)) {
+                        Path target = outputDir.resolve(entryName);
+                        Files.createDirectories(target.getParent());
+                        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                        metrics.add(RunMetrics.Counter.FILES_COPIED, 1);
+                        metrics.add(RunMetrics.Counter.BYTES_COPIED, Files.size(target));
+                    }
+                }
+                logger.info("Successfully copied project {} to local files {}", projectPath, outputDir);
+                return outputDir;
+            } catch (IOException e) {
+                logger.error("Could not copy the project {}", projectPath, e);
+                return null;
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
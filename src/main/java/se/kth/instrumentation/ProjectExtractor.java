@@ -1,51 +1,64 @@
 package se.kth.instrumentation;
 
-import com.github.dockerjava.api.model.HostConfig;
+import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import se.kth.util.DockerBuild;
+import se.kth.model.RunMetrics;
 import se.kth.util.FileUtils;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Optional;
 
 public class ProjectExtractor {
 
     private static final Logger logger = LoggerFactory.getLogger(ProjectExtractor.class);
 
-    private final DockerBuild dockerBuild;
+    private final ExecutionBackend executionBackend;
     private final Path outputBasePath;
-    private final HostConfig hostConfig;
-    private final String targetMethod;
+    private final Collection<String> targetMethods;
+    private final ExtractionCache extractionCache;
+    @Setter
+    private RunMetrics metrics = new RunMetrics();
 
-    public ProjectExtractor(DockerBuild dockerBuild, Path outputDir, HostConfig hostConfig, String targetMethod) {
-        this.dockerBuild = dockerBuild;
+    /**
+     * @param executionBackend the backend the tests are run with
+     * @param targetMethods    the methods to instrument, all of them are recorded during a single test run
+     * @param extractionCache  the cache to look up and store extractions in, or null to always extract
+     */
+    public ProjectExtractor(ExecutionBackend executionBackend, Path outputDir, Collection<String> targetMethods,
+                            ExtractionCache extractionCache) {
+        this.executionBackend = executionBackend;
         this.outputBasePath = outputDir;
-        this.hostConfig = hostConfig;
-        this.targetMethod = targetMethod;
+        this.targetMethods = targetMethods;
+        this.extractionCache = extractionCache;
         FileUtils.ensureDirectoryExists(outputDir);
     }
 
-    public Path extract(String imageName) {
-        String[] entryPoint = String.format("mvn test -l output.log -DargLine=\"-javaagent:/instrumentation/semantic-agent-1" +
-                ".0-SNAPSHOT.jar=%s\"", targetMethod).split(" ");
-
-        try {
-            dockerBuild.ensureBaseMavenImageExists(imageName);
-        } catch (InterruptedException e) {
-            logger.warn(e.getMessage());
-            throw new RuntimeException(e);
+    public Path extract(String project) {
+        String cacheKey = null;
+        if (extractionCache != null) {
+            String projectDigest = executionBackend.getProjectDigest(project);
+            if (projectDigest != null) {
+                cacheKey = extractionCache.key(projectDigest, targetMethods);
+                Optional<Path> cachedOutputDir = extractionCache.lookup(cacheKey);
+                if (cachedOutputDir.isPresent()) {
+                    logger.info("Using cached extraction of {} from {}", project, cachedOutputDir.get());
+                    return cachedOutputDir.get();
+                }
+            }
         }
-        String containerId = dockerBuild.startSpinningContainer(imageName, hostConfig);
-        dockerBuild.executeInContainer(containerId, entryPoint);
-        String outputDir = imageName.split("/")[2];
-        Path outputPath = outputBasePath.resolve(outputDir);
-        Path containerOutputDir = dockerBuild.copyProjectFromContainer(containerId, "project", outputPath);
-        if (containerOutputDir == null) {
-            logger.warn("Failed to extract project from {} to local files {}", containerId, outputPath);
-        } else {
-            logger.info("Successfully extracted project from {} to local files {}", containerId, outputPath);
+
+        try (ExecutionBackend.Execution execution = executionBackend.prepare(project)) {
+            metrics.time(RunMetrics.Phase.TEST_RUN, () -> execution.runTests(targetMethods));
+            Path outputPath = outputBasePath.resolve(executionBackend.getOutputDirectoryName(project));
+            Path projectOutputDir = metrics.time(RunMetrics.Phase.COPY, () -> execution.fetchOutputs(outputPath));
+            if (projectOutputDir != null && cacheKey != null &&
+                    Files.exists(projectOutputDir.resolve(CopyMode.METHOD_INVOCATION_FILE))) {
+                extractionCache.store(cacheKey, projectOutputDir);
+            }
+            return projectOutputDir;
         }
-        dockerBuild.removeContainer(containerId);
-        return containerOutputDir;
     }
 }
@@ -0,0 +1,59 @@
+package se.kth.matching;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Structural fingerprint of recorded arguments. "hash" fields, "__meta__" objects and the hashes inside circular
+ * references are ignored, as they identify objects of a single run, and the order of object fields does not matter.
+ * Equal fingerprints do not guarantee equal arguments, matches still have to be verified with a full comparison.
+ * Arguments whose objects only gained or lost fields are accepted as matching by
+ * {@link se.kth.comparison.ValueComparator} but have different fingerprints, so the fingerprint only decides which
+ * candidates are compared first.
+ */
+public final class ArgumentFingerprint {
+
+    private static final String CIRCULAR_REFERENCE_PREFIX = "<circular reference:";
+    private static final long CIRCULAR_REFERENCE = 0x5bd1e9955bd1e995L;
+    private static final String META_FIELD = "__meta__";
+
+    private ArgumentFingerprint() {
+    }
+
+    public static long of(JsonNode node) {
+        if (node == null) {
+            return 0;
+        }
+        long fingerprint = mix(node.getNodeType().ordinal() + 1);
+        if (node.isObject()) {
+            // Summing the fields makes the fingerprint independent of their order
+            long fields = 0;
+            Iterator<Map.Entry<String, JsonNode>> entries = node.fields();
+            while (entries.hasNext()) {
+                Map.Entry<String, JsonNode> entry = entries.next();
+                if (!entry.getKey().equals("hash") && !entry.getKey().equals(META_FIELD)) {
+                    fields += mix(entry.getKey().hashCode() ^ of(entry.getValue()));
+                }
+            }
+            return mix(fingerprint ^ fields);
+        } else if (node.isArray()) {
+            for (JsonNode child : node) {
+                fingerprint = mix(fingerprint * 31 + of(child));
+            }
+            return mix(fingerprint ^ node.size());
+        } else if (node.isTextual() && node.textValue().startsWith(CIRCULAR_REFERENCE_PREFIX)) {
+            return mix(fingerprint ^ CIRCULAR_REFERENCE);
+        }
+        return mix(fingerprint ^ node.asText().hashCode());
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
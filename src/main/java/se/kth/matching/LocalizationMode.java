@@ -0,0 +1,11 @@
+package se.kth.matching;
+
+/**
+ * How the stack frames of the recorded invocations are resolved to the test methods they were made from.
+ */
+public enum LocalizationMode {
+    /** Build the Spoon model of the whole project, with its classpath, and index the test methods of all sources */
+    MODEL,
+    /** Parse only the test sources the stack traces pass through, without a classpath */
+    LIGHTWEIGHT
+}
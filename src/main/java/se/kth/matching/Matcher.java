@@ -1,102 +1,267 @@
 package se.kth.matching;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Setter;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.kth.comparison.ValueComparator;
 import se.kth.model.MethodInvocation;
-import spoon.support.reflect.declaration.CtMethodImpl;
+import se.kth.model.RunMetrics;
+import se.kth.util.TargetMethods;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class Matcher {
 
     private static final Logger logger = LoggerFactory.getLogger(Matcher.class);
 
     private static final String METHOD_INVOCATION_FILE = "project/method_returns.json";
-    private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    /** Largest edit distance the alignment strategy searches for before falling back to greedy matching */
+    private static final int MAX_ALIGNMENT_EDIT_DISTANCE = 2000;
+
+    /** Number of invocations an invocation without a fingerprint match is compared with in full */
+    private static final int MAX_FALLBACK_CANDIDATES = 64;
+
+    private final ForkJoinPool executor;
+    private final MatchingStrategy matchingStrategy;
+    private final Queue<UnmatchedInvocation> unmatchedInvocations = new ConcurrentLinkedQueue<>();
+    @Setter
+    private RunMetrics metrics = new RunMetrics();
+    /** Cache of the test method indexes of the project versions, if null they are built for every match */
+    @Setter
+    private TestMethodIndexCache testMethodIndexCache;
+    @Setter
+    private LocalizationMode localizationMode = LocalizationMode.MODEL;
+
+    public Matcher() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public Matcher(MatchingStrategy matchingStrategy) {
+        this(ForkJoinPool.commonPool(), matchingStrategy);
+    }
+
+    /**
+     * @param executor the pool the pre and post versions are read and localized on. The per-invocation test method
+     *                 localization runs as a parallel stream inside the same pool.
+     */
+    public Matcher(ForkJoinPool executor) {
+        this(executor, MatchingStrategy.GREEDY);
+    }
+
+    public Matcher(ForkJoinPool executor, MatchingStrategy matchingStrategy) {
+        this.executor = executor;
+        this.matchingStrategy = matchingStrategy;
+    }
+
+    /**
+     * @return the invocations of all matches so far that could not be paired with an invocation of the other version
+     */
+    public List<UnmatchedInvocation> getUnmatchedInvocations() {
+        return List.copyOf(unmatchedInvocations);
+    }
+
+    /**
+     * Matches the invocations of a test run in which a single method was instrumented. Unmatched invocations are
+     * reported for the recorded method.
+     */
     public List<Pair<MethodInvocation, MethodInvocation>> readAndMatch(Path preVersion, Path postVersion) {
-        List<MethodInvocation> preVersionInvocations =
-                readMethodInvocations(preVersion.resolve(METHOD_INVOCATION_FILE));
-        List<MethodInvocation> postVersionInvocations =
-                readMethodInvocations(postVersion.resolve(METHOD_INVOCATION_FILE));
-
-        TestMethodLocalizer preTestLocalizer = new TestMethodLocalizer(preVersion.resolve("project"));
-        TestMethodLocalizer postTestLocalizer = new TestMethodLocalizer(postVersion.resolve("project"));
-        return match(preVersionInvocations, preTestLocalizer, postVersionInvocations, postTestLocalizer);
-    }
-
-    private List<MethodInvocation> readMethodInvocations(Path path) {
-        List<String> methodInvocationsRaw = readMethodReturnsFile(path);
-        return methodInvocationsRaw.stream()
-                .map(s -> {
-                    try {
-                        return objectMapper.readValue(s, MethodInvocation.class);
-                    } catch (JsonProcessingException e) {
-                        e.printStackTrace();
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
+        var withTestMethod = readAndLocalizeConcurrently(preVersion, postVersion);
+        String recordedMethod = Stream.concat(withTestMethod.getLeft().stream(), withTestMethod.getRight().stream())
+                .findFirst()
+                .map(pair -> pair.getRight().getClassName() + ":" + pair.getRight().getMethodName())
+                .orElse("");
+        return match(withTestMethod.getLeft(), withTestMethod.getRight(), recordedMethod);
+    }
+
+    /**
+     * Reads and localizes the invocations of both versions once and matches them separately for every target method,
+     * for test runs in which several target methods were instrumented at the same time.
+     *
+     * @return the matched invocations per target method, in the order of the given target methods
+     */
+    public Map<String, List<Pair<MethodInvocation, MethodInvocation>>> readAndMatch(Path preVersion,
+                                                                                    Path postVersion,
+                                                                                    Collection<String> targetMethods) {
+        var withTestMethod = readAndLocalizeConcurrently(preVersion, postVersion);
+        var preByTargetMethod = groupByTargetMethod(withTestMethod.getLeft(), targetMethods);
+        var postByTargetMethod = groupByTargetMethod(withTestMethod.getRight(), targetMethods);
+
+        Map<String, List<Pair<MethodInvocation, MethodInvocation>>> pairsByTargetMethod = new LinkedHashMap<>();
+        for (String targetMethod : targetMethods) {
+            pairsByTargetMethod.put(targetMethod, match(preByTargetMethod.getOrDefault(targetMethod, List.of()),
+                    postByTargetMethod.getOrDefault(targetMethod, List.of()), targetMethod));
+        }
+        return pairsByTargetMethod;
+    }
+
+    private Pair<List<Pair<String, MethodInvocation>>, List<Pair<String, MethodInvocation>>>
+    readAndLocalizeConcurrently(Path preVersion, Path postVersion) {
+        CompletableFuture<List<Pair<String, MethodInvocation>>> preWithTestMethod =
+                CompletableFuture.supplyAsync(() -> readAndLocalize(preVersion), executor);
+        CompletableFuture<List<Pair<String, MethodInvocation>>> postWithTestMethod =
+                CompletableFuture.supplyAsync(() -> readAndLocalize(postVersion), executor);
+        return Pair.of(preWithTestMethod.join(), postWithTestMethod.join());
+    }
+
+    /**
+     * Groups the invocations by the target method they were recorded for, keeping their order within each group. If
+     * only one method was instrumented, all invocations belong to it.
+     */
+    private static Map<String, List<Pair<String, MethodInvocation>>> groupByTargetMethod(
+            List<Pair<String, MethodInvocation>> invocations, Collection<String> targetMethods) {
+        Map<String, List<Pair<String, MethodInvocation>>> byTargetMethod = new HashMap<>();
+        Optional<String> onlyTargetMethod = targetMethods.size() == 1
+                ? Optional.of(targetMethods.iterator().next())
+                : Optional.empty();
+        for (Pair<String, MethodInvocation> pair : invocations) {
+            MethodInvocation invocation = pair.getRight();
+            onlyTargetMethod
+                    .or(() -> TargetMethods.resolve(targetMethods, invocation.getClassName(),
+                            invocation.getMethodName()))
+                    .ifPresent(targetMethod -> byTargetMethod.computeIfAbsent(targetMethod, key -> new ArrayList<>())
+                            .add(pair));
+        }
+        return byTargetMethod;
     }
 
-    private List<String> readMethodReturnsFile(Path path) {
+    private List<Pair<String, MethodInvocation>> readAndLocalize(Path version) {
+        if (localizationMode == LocalizationMode.LIGHTWEIGHT) {
+            return readAndLocalizeFromTestSources(version);
+        }
+        TestMethodLocalizer testLocalizer = metrics.time(RunMetrics.Phase.MODEL_BUILD,
+                () -> createTestMethodLocalizer(version.resolve("project")));
+        long start = System.nanoTime();
+        try (Stream<MethodInvocation> invocations = readMethodInvocations(version.resolve(METHOD_INVOCATION_FILE))) {
+            Stream<MethodInvocation> countedInvocations = invocations.peek(
+                    invocation -> metrics.add(RunMetrics.Counter.INVOCATIONS_READ, 1));
+            return locateTestMethods(countedInvocations, testLocalizer);
+        } finally {
+            metrics.addTime(RunMetrics.Phase.LOCALIZATION, System.nanoTime() - start);
+            metrics.add(RunMetrics.Counter.FRAMES_RESOLVED, testLocalizer.getFramesLocalized());
+        }
+    }
+
+    /**
+     * Reads all invocations first, as only the test sources their stack traces pass through are parsed. The
+     * lightweight index depends on the recorded invocations and is therefore not cached.
+     */
+    private List<Pair<String, MethodInvocation>> readAndLocalizeFromTestSources(Path version) {
+        long start = System.nanoTime();
+        List<MethodInvocation> invocations;
+        try (Stream<MethodInvocation> stream = readMethodInvocations(version.resolve(METHOD_INVOCATION_FILE))) {
+            invocations = stream.toList();
+        }
+        metrics.add(RunMetrics.Counter.INVOCATIONS_READ, invocations.size());
+        metrics.addTime(RunMetrics.Phase.LOCALIZATION, System.nanoTime() - start);
+
+        Set<String> fileNames = TestSourceIndexer.getFileNames(invocations.stream()
+                .map(MethodInvocation::getStackTrace)
+                .toList());
+        TestMethodLocalizer testLocalizer = metrics.time(RunMetrics.Phase.MODEL_BUILD,
+                () -> new TestMethodLocalizer(TestSourceIndexer.index(version.resolve("project"), fileNames)));
+        start = System.nanoTime();
+        try {
+            return locateTestMethods(invocations.stream(), testLocalizer);
+        } finally {
+            metrics.addTime(RunMetrics.Phase.LOCALIZATION, System.nanoTime() - start);
+            metrics.add(RunMetrics.Counter.FRAMES_RESOLVED, testLocalizer.getFramesLocalized());
+        }
+    }
+
+    private TestMethodLocalizer createTestMethodLocalizer(Path projectPath) {
+        if (testMethodIndexCache == null) {
+            return new TestMethodLocalizer(projectPath);
+        }
+        return new TestMethodLocalizer(testMethodIndexCache.get(projectPath));
+    }
+
+    /**
+     * Streams the recorded invocations lazily, so that the file is never held in memory as a whole and invocations
+     * that are not located in a test method are dropped right away.
+     */
+    private Stream<MethodInvocation> readMethodInvocations(Path path) {
         try {
-            return Files.readAllLines(path);
+            return MethodInvocationReader.stream(path);
         } catch (IOException e) {
             logger.error("No file found containing the return values");
-            return new ArrayList<>();
+            return Stream.empty();
         }
     }
 
-    private List<Pair<MethodInvocation, MethodInvocation>> match(List<MethodInvocation> preVersion,
-                                                                 TestMethodLocalizer preTestLocalizer,
-                                                                 List<MethodInvocation> postVersion,
-                                                                 TestMethodLocalizer postTestLocalizer) {
-        List<Pair<CtMethodImpl, MethodInvocation>> preWithTestMethod = preVersion.stream()
-                .map(pre -> Pair.of(preTestLocalizer.locateTestMethods(pre.getStackTrace()), pre))
-                .filter(pair -> pair.getLeft().isPresent())
-                .map(pair -> Pair.of(pair.getLeft().get(), pair.getRight()))
-                .toList();
-        List<Pair<CtMethodImpl, MethodInvocation>> postWithTestMethod = postVersion.stream()
-                .map(post -> Pair.of(postTestLocalizer.locateTestMethods(post.getStackTrace()), post))
+    /**
+     * Collects every located invocation, so the peak heap still grows with the number of recorded invocations. The
+     * invocations of a test method are not contiguous in the recording, e.g. with tests run in parallel, and both
+     * versions have to be grouped before any test method can be matched, so the groups can not be dropped earlier.
+     */
+    private List<Pair<String, MethodInvocation>> locateTestMethods(Stream<MethodInvocation> invocations,
+                                                                         TestMethodLocalizer testLocalizer) {
+        // Runs inside the executor, so the parallel stream is scheduled on the same pool
+        return invocations.parallel()
+                .map(invocation -> Pair.of(testLocalizer.locateTestMethods(invocation.getStackTrace()), invocation))
                 .filter(pair -> pair.getLeft().isPresent())
                 .map(pair -> Pair.of(pair.getLeft().get(), pair.getRight()))
                 .toList();
+    }
 
+    /**
+     * Matches invocations that are already located in their test methods. The invocations are grouped by test method
+     * and paired within each test method.
+     *
+     * @param preWithTestMethod  the invocations of the pre version with the test method they were made in
+     * @param postWithTestMethod the invocations of the post version with the test method they were made in
+     * @param targetMethod       the target method the invocations were recorded for, unmatched invocations are
+     *                           reported for it
+     */
+    public List<Pair<MethodInvocation, MethodInvocation>> match(
+            List<Pair<String, MethodInvocation>> preWithTestMethod,
+            List<Pair<String, MethodInvocation>> postWithTestMethod, String targetMethod) {
         logger.info("Finished locating test methods for pre and post versions");
 
-        List<Pair<List<MethodInvocation>, List<MethodInvocation>>> matchedByTestMethodName =
-                matchByTestMethodName(preWithTestMethod, postWithTestMethod);
+        return metrics.time(RunMetrics.Phase.MATCHING, () -> {
+            List<Pair<List<MethodInvocation>, List<MethodInvocation>>> matchedByTestMethodName =
+                    matchByTestMethodName(preWithTestMethod, postWithTestMethod);
 
-        return matchedByTestMethodName.stream()
-                .map(pair -> matchOnArgumentsAndOrder(pair.getLeft(), pair.getRight()))
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
+            return matchedByTestMethodName.stream()
+                    .map(pair -> matchOnArgumentsAndOrder(pair.getLeft(), pair.getRight(), targetMethod))
+                    .flatMap(List::stream)
+                    .collect(Collectors.toList());
+        });
     }
 
 
     public List<Pair<List<MethodInvocation>, List<MethodInvocation>>> matchByTestMethodName(
-            List<Pair<CtMethodImpl, MethodInvocation>> preVersion,
-            List<Pair<CtMethodImpl, MethodInvocation>> postVersion) {
+            List<Pair<String, MethodInvocation>> preVersion,
+            List<Pair<String, MethodInvocation>> postVersion) {
 
         List<Pair<List<MethodInvocation>, List<MethodInvocation>>> matchedInvocations = new ArrayList<>();
 
         var preGroupedByName = preVersion.stream()
-                .collect(Collectors.groupingBy(pair -> pair.getLeft().getSimpleName()));
+                .collect(Collectors.groupingBy(Pair::getLeft));
 
         var postGroupedByName = postVersion.stream()
-                .collect(Collectors.groupingBy(pair -> pair.getLeft().getSimpleName()));
+                .collect(Collectors.groupingBy(Pair::getLeft));
         logger.info("Finished grouping by test method name");
 
         for (var entry : preGroupedByName.entrySet()) {
@@ -112,11 +277,26 @@ public class Matcher {
             matchedInvocations.add(Pair.of(preInvocations, postInvocations));
         }
 
+        // Test methods that only called the target method in the post version
+        for (var entry : postGroupedByName.entrySet()) {
+            if (!preGroupedByName.containsKey(entry.getKey())) {
+                List<MethodInvocation> postInvocations = entry.getValue().stream()
+                        .map(Pair::getRight)
+                        .collect(Collectors.toList());
+                matchedInvocations.add(Pair.of(new ArrayList<>(), postInvocations));
+            }
+        }
+
         return matchedInvocations;
     }
 
+    /**
+     * Pairs the invocations of one test method. If both versions made the same number of calls, they are paired by
+     * order. Otherwise they are paired according to the {@link MatchingStrategy}, and invocations without a partner
+     * are recorded as {@link UnmatchedInvocation}s of the given target method.
+     */
     private List<Pair<MethodInvocation, MethodInvocation>> matchOnArgumentsAndOrder(
-            List<MethodInvocation> preVersion, List<MethodInvocation> postVersion) {
+            List<MethodInvocation> preVersion, List<MethodInvocation> postVersion, String targetMethod) {
         if (preVersion.size() == postVersion.size()) {
             List<Pair<MethodInvocation, MethodInvocation>> pairs = new ArrayList<>();
             for (int i = 0; i < preVersion.size(); i++) {
@@ -127,33 +307,176 @@ public class Matcher {
             return pairs;
         } else {
             try {
-                List<Pair<MethodInvocation, MethodInvocation>> matchedInvocations = new ArrayList<>();
-
-                for (MethodInvocation preInvocation : preVersion) {
-                    boolean matched = false;
-                    for (int i = 0; i < postVersion.size(); i++) {
-                        MethodInvocation postInvocation = postVersion.get(i);
-                        List<Difference> breakingChanges = ValueComparator.compareArguments(preInvocation, postInvocation)
-                                .stream()
-                                .flatMap(List::stream)
-                                .filter(difference -> difference.getType().equals(DifferenceType.VALUE_CHANGED) || difference.getType().equals(DifferenceType.TYPE_CHANGED))
-                                .toList();
-                        if (breakingChanges.isEmpty()) {
-                            matchedInvocations.add(Pair.of(preInvocation, postInvocation));
-                            postVersion.remove(i);
-                            matched = true;
-                            break;
-                        }
-                    }
-                    if (!matched) {
-                        matchedInvocations.add(Pair.of(preInvocation, null));
+                if (matchingStrategy == MatchingStrategy.ALIGNMENT) {
+                    List<Pair<MethodInvocation, MethodInvocation>> aligned = matchByAlignment(preVersion, postVersion,
+                            targetMethod);
+                    if (aligned != null) {
+                        return aligned;
                     }
+                    logger.info("Call sequences differ too much to be aligned, falling back to greedy matching");
                 }
-
-                return matchedInvocations;
+                return matchGreedily(preVersion, postVersion, targetMethod);
             } catch (Exception e) {
                 return new ArrayList<>();
             }
         }
     }
+
+    /**
+     * Pairs every pre-version invocation with the first remaining post-version invocation whose arguments do not differ
+     * in a breaking way. Candidates with the same argument fingerprint are compared first. Arguments that only gained
+     * or lost fields do not share a fingerprint, so the invocations left over are then compared in full with the
+     * remaining invocations of the other version in call order, with at most {@link #MAX_FALLBACK_CANDIDATES}
+     * comparisons per invocation to keep matching near-linear.
+     */
+    private List<Pair<MethodInvocation, MethodInvocation>> matchGreedily(List<MethodInvocation> preVersion,
+                                                                         List<MethodInvocation> postVersion,
+                                                                         String targetMethod)
+            throws JsonProcessingException {
+        boolean[] consumed = new boolean[postVersion.size()];
+        Map<Long, Deque<Integer>> postByFingerprint = new HashMap<>();
+        for (int i = 0; i < postVersion.size(); i++) {
+            postByFingerprint.computeIfAbsent(ArgumentFingerprint.of(postVersion.get(i).getArgumentsTree()),
+                    fingerprint -> new ArrayDeque<>()).add(i);
+        }
+
+        int[] matches = new int[preVersion.size()];
+        List<Integer> unmatchedPre = new ArrayList<>();
+        for (int i = 0; i < preVersion.size(); i++) {
+            MethodInvocation preInvocation = preVersion.get(i);
+            Deque<Integer> candidates = postByFingerprint.get(ArgumentFingerprint.of(preInvocation.getArgumentsTree()));
+            matches[i] = findMatchInBucket(preInvocation, candidates, postVersion, consumed);
+            if (matches[i] >= 0) {
+                consumed[matches[i]] = true;
+            } else {
+                unmatchedPre.add(i);
+            }
+        }
+
+        if (!unmatchedPre.isEmpty()) {
+            List<Integer> remainingPost = new LinkedList<>();
+            for (int i = 0; i < postVersion.size(); i++) {
+                if (!consumed[i]) {
+                    remainingPost.add(i);
+                }
+            }
+            for (int i : unmatchedPre) {
+                matches[i] = findMatchInRemaining(preVersion.get(i), remainingPost, postVersion);
+                if (matches[i] >= 0) {
+                    consumed[matches[i]] = true;
+                }
+            }
+        }
+
+        List<Pair<MethodInvocation, MethodInvocation>> matchedInvocations = new ArrayList<>();
+        for (int i = 0; i < preVersion.size(); i++) {
+            if (matches[i] >= 0) {
+                matchedInvocations.add(Pair.of(preVersion.get(i), postVersion.get(matches[i])));
+            } else {
+                unmatchedInvocations.add(new UnmatchedInvocation(preVersion.get(i), UnmatchedInvocation.Version.PRE,
+                        targetMethod));
+            }
+        }
+        for (int i = 0; i < postVersion.size(); i++) {
+            if (!consumed[i]) {
+                unmatchedInvocations.add(new UnmatchedInvocation(postVersion.get(i),
+                        UnmatchedInvocation.Version.POST, targetMethod));
+            }
+        }
+
+        return matchedInvocations;
+    }
+
+    /**
+     * Aligns both call sequences by their argument fingerprints, so that an additional call in one version does not
+     * shift the pairing of all following calls. Aligned calls are verified with a full argument comparison. Calls
+     * between two aligned ones are paired greedily among each other.
+     *
+     * @return the pairs in call order, or null if the sequences differ too much to be aligned
+     */
+    private List<Pair<MethodInvocation, MethodInvocation>> matchByAlignment(List<MethodInvocation> preVersion,
+                                                                            List<MethodInvocation> postVersion,
+                                                                            String targetMethod)
+            throws JsonProcessingException {
+        long[] preFingerprints = new long[preVersion.size()];
+        for (int i = 0; i < preFingerprints.length; i++) {
+            preFingerprints[i] = ArgumentFingerprint.of(preVersion.get(i).getArgumentsTree());
+        }
+        long[] postFingerprints = new long[postVersion.size()];
+        for (int i = 0; i < postFingerprints.length; i++) {
+            postFingerprints[i] = ArgumentFingerprint.of(postVersion.get(i).getArgumentsTree());
+        }
+        List<SequenceAligner.Step> steps = SequenceAligner.align(preFingerprints, postFingerprints,
+                MAX_ALIGNMENT_EDIT_DISTANCE);
+        if (steps == null) {
+            return null;
+        }
+
+        List<Pair<MethodInvocation, MethodInvocation>> matchedInvocations = new ArrayList<>();
+        List<MethodInvocation> preGap = new ArrayList<>();
+        List<MethodInvocation> postGap = new ArrayList<>();
+        for (SequenceAligner.Step step : steps) {
+            MethodInvocation pre = step.preIndex() >= 0 ? preVersion.get(step.preIndex()) : null;
+            MethodInvocation post = step.postIndex() >= 0 ? postVersion.get(step.postIndex()) : null;
+            if (step.isMatch() && argumentsMatch(pre, post)) {
+                matchedInvocations.addAll(matchGreedily(preGap, postGap, targetMethod));
+                preGap.clear();
+                postGap.clear();
+                matchedInvocations.add(Pair.of(pre, post));
+            } else {
+                if (pre != null) {
+                    preGap.add(pre);
+                }
+                if (post != null) {
+                    postGap.add(post);
+                }
+            }
+        }
+        matchedInvocations.addAll(matchGreedily(preGap, postGap, targetMethod));
+        return matchedInvocations;
+    }
+
+    private int findMatchInBucket(MethodInvocation preInvocation, Deque<Integer> candidates,
+                                  List<MethodInvocation> postVersion, boolean[] consumed)
+            throws JsonProcessingException {
+        if (candidates == null) {
+            return -1;
+        }
+        for (Iterator<Integer> iterator = candidates.iterator(); iterator.hasNext(); ) {
+            int candidate = iterator.next();
+            if (consumed[candidate]) {
+                iterator.remove();
+            } else if (argumentsMatch(preInvocation, postVersion.get(candidate))) {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the invocation with the first {@link #MAX_FALLBACK_CANDIDATES} remaining candidates in call order and
+     * removes the matching one.
+     */
+    private int findMatchInRemaining(MethodInvocation preInvocation, List<Integer> remainingCandidates,
+                                     List<MethodInvocation> postVersion) throws JsonProcessingException {
+        Iterator<Integer> iterator = remainingCandidates.iterator();
+        for (int compared = 0; compared < MAX_FALLBACK_CANDIDATES && iterator.hasNext(); compared++) {
+            int candidate = iterator.next();
+            if (argumentsMatch(preInvocation, postVersion.get(candidate))) {
+                iterator.remove();
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private boolean argumentsMatch(MethodInvocation preInvocation, MethodInvocation postInvocation)
+            throws JsonProcessingException {
+        return ValueComparator.compareArguments(preInvocation, postInvocation)
+                .stream()
+                .flatMap(List::stream)
+                .noneMatch(difference -> difference.getType().equals(DifferenceType.VALUE_CHANGED) ||
+                        difference.getType().equals(DifferenceType.TYPE_CHANGED));
+    }
 }
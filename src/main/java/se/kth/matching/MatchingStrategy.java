@@ -0,0 +1,11 @@
+package se.kth.matching;
+
+/**
+ * How the invocations of one test method are paired when the pre and post version made a different number of calls.
+ */
+public enum MatchingStrategy {
+    /** Pair every pre-version invocation with the first remaining post-version invocation with matching arguments */
+    GREEDY,
+    /** Align both call sequences by their argument fingerprints, keeping the order of the calls */
+    ALIGNMENT
+}
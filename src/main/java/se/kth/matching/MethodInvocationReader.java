@@ -0,0 +1,112 @@
+package se.kth.matching;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.model.MethodInvocation;
+import se.kth.util.JsonUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads the method invocations recorded by the semantic agent (one JSON object per line) lazily, so that the whole
+ * file never has to be held in memory. Every line is parsed on its own with the shared reader: an invocation that can
+ * not be deserialized, e.g. one truncated by a crashed test run, is skipped without affecting the following lines.
+ */
+public class MethodInvocationReader implements Iterator<MethodInvocation>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MethodInvocationReader.class);
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final ObjectReader invocationReader = JsonUtils.getMethodInvocationReader();
+
+    private final Path path;
+    private final BufferedReader lines;
+    private MethodInvocation next;
+    private boolean finished;
+    private long lineNumber;
+
+    private MethodInvocationReader(Path path) throws IOException {
+        this.path = path;
+        // Unlike Files.newBufferedReader, an InputStreamReader replaces malformed input of truncated lines
+        this.lines = new BufferedReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+    }
+
+    /**
+     * Streams the invocations of the given file in the order they were recorded. The stream must be closed to
+     * release the file.
+     */
+    public static Stream<MethodInvocation> stream(Path path) throws IOException {
+        MethodInvocationReader reader = new MethodInvocationReader(path);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader,
+                        Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(reader::closeUnchecked);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !finished) {
+            String line;
+            try {
+                line = lines.readLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (line == null) {
+                finished = true;
+            } else {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    next = readInvocation(line);
+                }
+            }
+        }
+        return next != null;
+    }
+
+    private MethodInvocation readInvocation(String line) {
+        try {
+            return invocationReader.readValue(line);
+        } catch (IOException e) {
+            logger.warn("Skipping unreadable invocation in {} at line {}: {}", path, lineNumber, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public MethodInvocation next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        MethodInvocation invocation = next;
+        next = null;
+        return invocation;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+
+    private void closeUnchecked() {
+        try {
+            close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package se.kth.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aligns two sequences of fingerprints with Myers' O(ND) difference algorithm, where N is the combined length of the
+ * sequences and D the number of insertions and deletions needed to turn one into the other.
+ */
+final class SequenceAligner {
+
+    /**
+     * One step of an alignment: either both elements are equal, or an element only exists in one of the sequences.
+     * The index of the missing side is -1.
+     */
+    record Step(int preIndex, int postIndex) {
+
+        boolean isMatch() {
+            return preIndex >= 0 && postIndex >= 0;
+        }
+    }
+
+    private SequenceAligner() {
+    }
+
+    /**
+     * @param maxEditDistance the largest number of insertions and deletions to search for, bounding time and memory
+     * @return the steps of a shortest alignment in sequence order, or null if the sequences differ by more than
+     * {@code maxEditDistance} insertions and deletions
+     */
+    static List<Step> align(long[] pre, long[] post, int maxEditDistance) {
+        int n = pre.length;
+        int m = post.length;
+        int max = Math.min(n + m, maxEditDistance);
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= max; d++) {
+            // Only diagonals -d-1 to d+1 are read in step d
+            trace.add(Arrays.copyOfRange(v, offset - d - 1, offset + d + 2));
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && pre[x] == post[y]) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    return backtrack(trace, n, m);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Step> backtrack(List<int[]> trace, int n, int m) {
+        List<Step> steps = new ArrayList<>();
+        int x = n;
+        int y = m;
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            int prevX = 0;
+            int prevY = 0;
+            if (d > 0) {
+                int prevK;
+                if (k == -d || (k != d && v[k - 1 + d + 1] < v[k + 1 + d + 1])) {
+                    prevK = k + 1;
+                } else {
+                    prevK = k - 1;
+                }
+                prevX = v[prevK + d + 1];
+                prevY = prevX - prevK;
+            }
+
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+                steps.add(new Step(x, y));
+            }
+            if (d > 0) {
+                if (x == prevX) {
+                    steps.add(new Step(-1, prevY));
+                } else {
+                    steps.add(new Step(prevX, -1));
+                }
+            }
+            x = prevX;
+            y = prevY;
+        }
+        Collections.reverse(steps);
+        return steps;
+    }
+}
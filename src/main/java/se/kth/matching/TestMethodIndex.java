@@ -0,0 +1,117 @@
+package se.kth.matching;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import se.kth.extractor.SpoonLocalizer;
+import spoon.reflect.declaration.CtElement;
+import spoon.support.reflect.declaration.CtMethodImpl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * The test method every source line of a project belongs to, per file name. This is all the matching needs from the
+ * Spoon model, so an index can be cached and reused without the model.
+ * <p>
+ * Lines are stored as ranges of consecutive lines that belong to the same test method, each range as three ints
+ * (first line, last line, index into the test method names), sorted by their first line.
+ */
+@Getter
+public class TestMethodIndex {
+
+    private final List<String> testMethods;
+    private final Map<String, int[]> lineRanges;
+
+    public TestMethodIndex(@JsonProperty("testMethods") List<String> testMethods,
+                           @JsonProperty("lineRanges") Map<String, int[]> lineRanges) {
+        this.testMethods = testMethods;
+        this.lineRanges = lineRanges;
+    }
+
+    /**
+     * Resolves every indexed line of the model to its test method, like
+     * {@link SpoonLocalizer#localizeTestRootElementsFromStackTraceElement} does for a single frame.
+     */
+    public static TestMethodIndex build(SpoonLocalizer spoonLocalizer) {
+        Map<String, SortedMap<Integer, String>> testMethodsByLine = new HashMap<>();
+        spoonLocalizer.getPositionIndex().forEach((fileName, elementsByLine) -> {
+            SortedMap<Integer, String> testMethods = new TreeMap<>();
+            elementsByLine.forEach((line, element) -> findTestMethod(spoonLocalizer, element)
+                    .ifPresent(testMethod -> testMethods.put(line, testMethod)));
+            testMethodsByLine.put(fileName, testMethods);
+        });
+        return of(testMethodsByLine);
+    }
+
+    /**
+     * @param testMethodsByLine the name of the test method per line, per file name, for the lines in a test method
+     */
+    static TestMethodIndex of(Map<String, ? extends SortedMap<Integer, String>> testMethodsByLine) {
+        List<String> testMethods = new ArrayList<>();
+        Map<String, Integer> testMethodIds = new HashMap<>();
+        Map<String, int[]> lineRanges = new HashMap<>();
+
+        testMethodsByLine.forEach((fileName, testMethodByLine) -> {
+            List<Integer> ranges = new ArrayList<>();
+            for (Map.Entry<Integer, String> line : testMethodByLine.entrySet()) {
+                int id = testMethodIds.computeIfAbsent(line.getValue(), name -> {
+                    testMethods.add(name);
+                    return testMethods.size() - 1;
+                });
+                int last = ranges.size() - 3;
+                if (last >= 0 && ranges.get(last + 1) == line.getKey() - 1 && ranges.get(last + 2) == id) {
+                    ranges.set(last + 1, line.getKey());
+                } else {
+                    ranges.add(line.getKey());
+                    ranges.add(line.getKey());
+                    ranges.add(id);
+                }
+            }
+            if (!ranges.isEmpty()) {
+                lineRanges.put(fileName, ranges.stream().mapToInt(Integer::intValue).toArray());
+            }
+        });
+        return new TestMethodIndex(testMethods, lineRanges);
+    }
+
+    private static Optional<String> findTestMethod(SpoonLocalizer spoonLocalizer, CtElement element) {
+        try {
+            List<CtElement> testRootElements = spoonLocalizer.localizeTestRootElements(element);
+            if (testRootElements != null && !testRootElements.isEmpty()
+                    && testRootElements.getFirst() instanceof CtMethodImpl<?> testMethod) {
+                return Optional.of(testMethod.getSimpleName());
+            }
+        } catch (RuntimeException e) {
+            // Elements outside of any class, e.g. in package declarations, do not belong to a test method
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the name of the test method the line belongs to, or empty if it is not located in a test method
+     */
+    public Optional<String> lookup(String fileName, int line) {
+        int[] ranges = fileName == null ? null : lineRanges.get(fileName);
+        if (ranges == null) {
+            return Optional.empty();
+        }
+        int low = 0;
+        int high = ranges.length / 3 - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (line < ranges[middle * 3]) {
+                high = middle - 1;
+            } else if (line > ranges[middle * 3 + 1]) {
+                low = middle + 1;
+            } else {
+                return Optional.of(testMethods.get(ranges[middle * 3 + 2]));
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,155 @@
+package se.kth.matching;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.extractor.SpoonLocalizer;
+import se.kth.util.FileUtils;
+import se.kth.util.JsonUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Cache of the {@link TestMethodIndex} of project versions, keyed by the content hash of their Java sources, so that
+ * the Spoon model of a version is only built once. The most recently used indexes are kept in memory, and every index
+ * is stored on disk as well, so that later runs do not need to build the model at all.
+ */
+public class TestMethodIndexCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestMethodIndexCache.class);
+
+    /** Changes whenever the way an index is built changes, so that outdated entries are not used */
+    private static final String INDEX_VERSION = "1";
+
+    private final Path cacheDir;
+    private final Map<String, CompletableFuture<TestMethodIndex>> indexes;
+
+    /**
+     * @param maxIndexesInMemory the number of indexes kept in memory, the least recently used ones are evicted first
+     */
+    public TestMethodIndexCache(Path cacheDir, int maxIndexesInMemory) {
+        this.cacheDir = cacheDir;
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<TestMethodIndex>> eldest) {
+                return size() > maxIndexesInMemory;
+            }
+        };
+        FileUtils.ensureDirectoryExists(cacheDir);
+    }
+
+    /**
+     * @return the index of the project, built only if no index of the same sources is cached. Concurrent requests
+     * for the same sources wait for a single build.
+     */
+    public TestMethodIndex get(Path projectPath) {
+        String key = hashSources(projectPath);
+        CompletableFuture<TestMethodIndex> index;
+        boolean building = false;
+        synchronized (indexes) {
+            index = indexes.get(key);
+            if (index == null) {
+                index = new CompletableFuture<>();
+                indexes.put(key, index);
+                building = true;
+            }
+        }
+        if (building) {
+            try {
+                index.complete(loadOrBuild(key, projectPath));
+            } catch (RuntimeException e) {
+                synchronized (indexes) {
+                    indexes.remove(key);
+                }
+                index.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return index.join();
+    }
+
+    private TestMethodIndex loadOrBuild(String key, Path projectPath) {
+        Path entry = cacheDir.resolve(key + JsonUtils.JSON_FILE_ENDING);
+        if (Files.isRegularFile(entry)) {
+            try {
+                TestMethodIndex index = JsonUtils.readValue(Files.readString(entry), TestMethodIndex.class);
+                logger.info("Using cached test method index of {}", projectPath);
+                return index;
+            } catch (IOException e) {
+                logger.warn("Could not read cached test method index {}, rebuilding it", entry, e);
+            }
+        }
+        TestMethodIndex index = TestMethodIndex.build(new SpoonLocalizer(projectPath));
+        store(entry, index);
+        return index;
+    }
+
+    /**
+     * Writes the index to a temporary file first and moves it into place afterwards, so that readers never observe a
+     * partial entry.
+     */
+    private void store(Path entry, TestMethodIndex index) {
+        Path tmpEntry = cacheDir.resolve(entry.getFileName() + ".tmp-" + UUID.randomUUID());
+        try {
+            Files.writeString(tmpEntry, JsonUtils.writeValueAsString(index));
+            Files.move(tmpEntry, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Could not store test method index {}", entry, e);
+            try {
+                Files.deleteIfExists(tmpEntry);
+            } catch (IOException ignored) {
+                // Left over for manual cleanup
+            }
+        }
+    }
+
+    /**
+     * Hashes the relative paths and contents of all Java sources below the project directory, in a stable order.
+     */
+    private static String hashSources(Path projectPath) {
+        MessageDigest digest = newDigest();
+        digest.update(INDEX_VERSION.getBytes(StandardCharsets.UTF_8));
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(projectPath)) {
+            sources = files.filter(file -> file.toString().endsWith(".java"))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            for (Path source : sources) {
+                digest.update((byte) 0);
+                digest.update(projectPath.relativize(source).toString().replace('\\', '/')
+                        .getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(source));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
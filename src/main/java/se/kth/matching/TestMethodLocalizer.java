@@ -2,35 +2,55 @@ package se.kth.matching;
 
 
 import se.kth.extractor.SpoonLocalizer;
-import spoon.reflect.declaration.CtElement;
-import spoon.support.reflect.declaration.CtMethodImpl;
 
 import java.nio.file.Path;
-import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
 public class TestMethodLocalizer {
 
-    private final SpoonLocalizer spoonLocalizer;
+    private final TestMethodIndex testMethodIndex;
+    private final LongAdder framesLocalized = new LongAdder();
 
+    /**
+     * Builds the Spoon model of the project and indexes its test methods.
+     */
     public TestMethodLocalizer(Path projectPath) {
-        this.spoonLocalizer = new SpoonLocalizer(projectPath);
+        this(TestMethodIndex.build(new SpoonLocalizer(projectPath)));
     }
 
-    public Optional<CtMethodImpl> locateTestMethods(StackTraceElement[] stackTraceElements) {
+    public TestMethodLocalizer(TestMethodIndex testMethodIndex) {
+        this.testMethodIndex = testMethodIndex;
+    }
+
+    /**
+     * @return the name of the test method the stack trace passes through, looked up from the outermost frame inwards
+     */
+    public Optional<String> locateTestMethods(StackTraceElement[] stackTraceElements) {
         for (int i = stackTraceElements.length - 1; i >= 0; i--) {
-            StackTraceElement stackTraceElement = stackTraceElements[i];
-            Optional<CtElement> element = spoonLocalizer.localizeElementFromStackTraceElement(stackTraceElement);
-            if (element.isPresent()) {
-                List<CtElement> testRootElements =
-                        spoonLocalizer.localizeTestRootElementsFromStackTraceElement(stackTraceElement);
-                if (testRootElements != null && !testRootElements.isEmpty()) {
-                    if (testRootElements.getFirst() instanceof CtMethodImpl) {
-                        return Optional.of((CtMethodImpl) testRootElements.getFirst());
-                    }
-                }
+            Optional<String> testMethod = resolveFrame(stackTraceElements[i]);
+            if (testMethod.isPresent()) {
+                return testMethod;
             }
         }
         return Optional.empty();
     }
+
+    /**
+     * Resolves a single stack frame to the test method it belongs to.
+     *
+     * @param stackTraceElement the frame to resolve
+     * @return the name of the test method of the frame, or empty if the frame is not located in a test method
+     */
+    public Optional<String> resolveFrame(StackTraceElement stackTraceElement) {
+        framesLocalized.increment();
+        return testMethodIndex.lookup(stackTraceElement.getFileName(), stackTraceElement.getLineNumber());
+    }
+
+    /**
+     * @return the number of frames resolved so far
+     */
+    public long getFramesLocalized() {
+        return framesLocalized.sum();
+    }
 }
@@ -0,0 +1,73 @@
+package se.kth.matching;
+
+import se.kth.extractor.SpoonLocalizer;
+import spoon.Launcher;
+import spoon.reflect.CtModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds a {@link TestMethodIndex} from only the test sources the recorded stack traces pass through, instead of the
+ * model of the whole project. The files are parsed without a classpath, which is enough to find the test methods by
+ * their annotations, and their lines are resolved with the same rules as the model based index. Test sources are
+ * only searched below "src/test" directories.
+ */
+public final class TestSourceIndexer {
+
+    private static final String TEST_SOURCE_DIRECTORY = "src/test/";
+
+    private TestSourceIndexer() {
+    }
+
+    /**
+     * @return the names of the files the stack traces of the invocations pass through
+     */
+    public static Set<String> getFileNames(Collection<StackTraceElement[]> stackTraces) {
+        return stackTraces.stream()
+                .filter(Objects::nonNull)
+                .flatMap(Arrays::stream)
+                .map(StackTraceElement::getFileName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @param projectPath the project whose test sources are indexed
+     * @param fileNames   the names of the source files to index, files with other names are not parsed
+     */
+    public static TestMethodIndex index(Path projectPath, Set<String> fileNames) {
+        List<Path> testSources = findTestSources(projectPath, fileNames);
+        if (testSources.isEmpty()) {
+            return TestMethodIndex.of(Map.of());
+        }
+
+        Launcher launcher = new Launcher();
+        testSources.forEach(testSource -> launcher.addInputResource(testSource.toString()));
+        launcher.getEnvironment().setNoClasspath(true);
+        CtModel model = launcher.buildModel();
+        return TestMethodIndex.build(new SpoonLocalizer(model));
+    }
+
+    private static List<Path> findTestSources(Path projectPath, Set<String> fileNames) {
+        try (Stream<Path> files = Files.walk(projectPath)) {
+            return files.filter(file -> fileNames.contains(file.getFileName().toString()))
+                    .filter(file -> projectPath.relativize(file).toString().replace('\\', '/')
+                            .contains(TEST_SOURCE_DIRECTORY))
+                    .filter(Files::isRegularFile)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package se.kth.matching;
+
+import se.kth.model.MethodInvocation;
+
+/**
+ * An invocation that could not be paired with an invocation of the other version, e.g. because one version made an
+ * additional call.
+ *
+ * @param invocation   the unmatched invocation
+ * @param version      the version that made the invocation
+ * @param targetMethod the target method the invocation was recorded for
+ */
+public record UnmatchedInvocation(MethodInvocation invocation, Version version, String targetMethod) {
+
+    public enum Version {
+        PRE,
+        POST
+    }
+}
@@ -0,0 +1,57 @@
+package se.kth.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import se.kth.util.SemBUpdate;
+
+/**
+ * The outcome of a single benchmark update, as appended to the result journal when the update finishes.
+ */
+@Getter
+public class JournalEntry {
+
+    public enum Status {
+        COMPLETED,
+        FAILED
+    }
+
+    private final String id;
+    private final Status status;
+    private final boolean semB;
+    private final boolean groundTruth;
+    /** Whether Semanticanary found differences, always false for failed updates */
+    private final boolean semanticanary;
+    private final long timestamp;
+
+    public JournalEntry(@JsonProperty("id") String id, @JsonProperty("status") Status status,
+                        @JsonProperty("semB") boolean semB, @JsonProperty("groundTruth") boolean groundTruth,
+                        @JsonProperty("semanticanary") boolean semanticanary,
+                        @JsonProperty("timestamp") long timestamp) {
+        this.id = id;
+        this.status = status;
+        this.semB = semB;
+        this.groundTruth = groundTruth;
+        this.semanticanary = semanticanary;
+        this.timestamp = timestamp;
+    }
+
+    public static JournalEntry completed(SemBUpdate semBUpdate, boolean semanticanary) {
+        return new JournalEntry(String.valueOf(semBUpdate.getId()), Status.COMPLETED, semBUpdate.isSemB(),
+                semBUpdate.isGroundTruth(), semanticanary, System.currentTimeMillis());
+    }
+
+    public static JournalEntry failed(SemBUpdate semBUpdate) {
+        return new JournalEntry(String.valueOf(semBUpdate.getId()), Status.FAILED, semBUpdate.isSemB(),
+                semBUpdate.isGroundTruth(), false, System.currentTimeMillis());
+    }
+
+    @JsonIgnore
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+
+    public BenchmarkResult toBenchmarkResult() {
+        return new BenchmarkResult(id, semB, groundTruth, semanticanary);
+    }
+}
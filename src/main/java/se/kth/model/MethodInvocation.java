@@ -1,7 +1,12 @@
 package se.kth.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AccessLevel;
 import lombok.Getter;
+import se.kth.util.JsonUtils;
 
 @Getter
 public class MethodInvocation {
@@ -12,6 +17,14 @@ public class MethodInvocation {
     private final String arguments;
     private final String returnValue;
 
+    // Parsed on first access and shared by all comparisons of this invocation
+    @Getter(AccessLevel.NONE)
+    @JsonIgnore
+    private volatile JsonNode argumentsTree;
+    @Getter(AccessLevel.NONE)
+    @JsonIgnore
+    private volatile JsonNode returnValueTree;
+
     public MethodInvocation(
             @JsonProperty("className") String className, @JsonProperty("methodName") String methodName,
             @JsonProperty("stackTrace") StackTraceElement[] stackTrace, @JsonProperty("arguments") String arguments,
@@ -22,4 +35,30 @@ public class MethodInvocation {
         this.arguments = arguments;
         this.returnValue = returnValue;
     }
+
+    /**
+     * @return the arguments as a JSON tree, parsed only once per invocation
+     */
+    @JsonIgnore
+    public JsonNode getArgumentsTree() throws JsonProcessingException {
+        JsonNode tree = argumentsTree;
+        if (tree == null) {
+            tree = JsonUtils.readTree(arguments);
+            argumentsTree = tree;
+        }
+        return tree;
+    }
+
+    /**
+     * @return the return value as a JSON tree, parsed only once per invocation
+     */
+    @JsonIgnore
+    public JsonNode getReturnValueTree() throws JsonProcessingException {
+        JsonNode tree = returnValueTree;
+        if (tree == null) {
+            tree = JsonUtils.readTree(returnValue);
+            returnValueTree = tree;
+        }
+        return tree;
+    }
 }
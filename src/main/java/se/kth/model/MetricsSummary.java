@@ -0,0 +1,73 @@
+package se.kth.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Distribution of the phase times and counters over the runs of a benchmark.
+ */
+@Getter
+public class MetricsSummary {
+
+    private final int runs;
+    private final Map<RunMetrics.Phase, Percentiles> phaseMillis = new LinkedHashMap<>();
+    private final Map<RunMetrics.Counter, Percentiles> counters = new LinkedHashMap<>();
+
+    public MetricsSummary(Collection<RunMetrics> metrics) {
+        this.runs = metrics.size();
+        for (RunMetrics.Phase phase : RunMetrics.Phase.values()) {
+            phaseMillis.put(phase, Percentiles.of(metrics.stream()
+                    .mapToDouble(run -> run.getNanos(phase) / 1e6)
+                    .toArray()));
+        }
+        for (RunMetrics.Counter counter : RunMetrics.Counter.values()) {
+            counters.put(counter, Percentiles.of(metrics.stream()
+                    .mapToDouble(run -> run.getCount(counter))
+                    .toArray()));
+        }
+    }
+
+    @Getter
+    public static class Percentiles {
+
+        private final double p50;
+        private final double p95;
+        private final double max;
+        private final double total;
+
+        private Percentiles(double p50, double p95, double max, double total) {
+            this.p50 = p50;
+            this.p95 = p95;
+            this.max = max;
+            this.total = total;
+        }
+
+        static Percentiles of(double[] values) {
+            if (values.length == 0) {
+                return new Percentiles(0, 0, 0, 0);
+            }
+            double[] sorted = values.clone();
+            Arrays.sort(sorted);
+            return new Percentiles(percentile(sorted, 50), percentile(sorted, 95), sorted[sorted.length - 1],
+                    Arrays.stream(sorted).sum());
+        }
+
+        // Nearest-rank percentile
+        private static double percentile(double[] sorted, int percent) {
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder(String.format("Phase times over %d runs (p50 / p95 ms):%n", runs));
+        phaseMillis.forEach((phase, percentiles) -> summary.append(String.format("  %-15s %10.1f / %10.1f%n", phase,
+                percentiles.getP50(), percentiles.getP95())));
+        return summary.toString();
+    }
+}
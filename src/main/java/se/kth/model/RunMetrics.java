@@ -0,0 +1,121 @@
+package se.kth.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Time spent per phase and counters of a single run of Semanticanary, i.e. the extraction and comparison of one pre
+ * and post version. Phases that run for both versions, possibly at the same time, accumulate the time of both. All
+ * methods are thread-safe.
+ */
+public class RunMetrics {
+
+    public enum Phase {
+        /** Pulling or inspecting the Docker image */
+        IMAGE_PULL,
+        /** Starting a container or taking one from the pool */
+        CONTAINER_START,
+        /** Running the tests with the semantic agent attached */
+        TEST_RUN,
+        /** Copying the project and the recorded invocations to the host */
+        COPY,
+        /** Building the Spoon model of the project and its test method index, or loading the cached index */
+        MODEL_BUILD,
+        /** Reading the recorded invocations and localizing their test methods */
+        LOCALIZATION,
+        /** Pairing the invocations of the pre and post version */
+        MATCHING,
+        /** Comparing the return values of the pairs */
+        COMPARISON,
+        /** Writing the difference reports */
+        RESULT_WRITING
+    }
+
+    public enum Counter {
+        BYTES_COPIED,
+        FILES_COPIED,
+        /** Invocations read from the recordings of both versions */
+        INVOCATIONS_READ,
+        /** Stack frames looked up in the test method index */
+        FRAMES_RESOLVED,
+        PAIRS_COMPARED,
+        DIFFERENCES_FOUND
+    }
+
+    private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+
+    public RunMetrics() {
+        // All keys are present from the start, so the maps are only read concurrently
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new LongAdder());
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+    }
+
+    public <T> T time(Phase phase, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            addTime(phase, System.nanoTime() - start);
+        }
+    }
+
+    public void time(Phase phase, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            addTime(phase, System.nanoTime() - start);
+        }
+    }
+
+    public void addTime(Phase phase, long nanos) {
+        phaseNanos.get(phase).add(nanos);
+    }
+
+    public void add(Counter counter, long amount) {
+        counters.get(counter).add(amount);
+    }
+
+    /**
+     * Adds all times and counters of the given metrics to these metrics.
+     */
+    public void addAll(RunMetrics other) {
+        other.phaseNanos.forEach((phase, nanos) -> addTime(phase, nanos.sum()));
+        other.counters.forEach((counter, amount) -> add(counter, amount.sum()));
+    }
+
+    @JsonIgnore
+    public long getNanos(Phase phase) {
+        return phaseNanos.get(phase).sum();
+    }
+
+    @JsonIgnore
+    public long getCount(Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    /**
+     * @return the time spent per phase in milliseconds
+     */
+    public Map<Phase, Double> getPhaseMillis() {
+        Map<Phase, Double> phaseMillis = new LinkedHashMap<>();
+        phaseNanos.forEach((phase, nanos) -> phaseMillis.put(phase, nanos.sum() / 1e6));
+        return phaseMillis;
+    }
+
+    public Map<Counter, Long> getCounters() {
+        Map<Counter, Long> values = new LinkedHashMap<>();
+        counters.forEach((counter, amount) -> values.put(counter, amount.sum()));
+        return values;
+    }
+}
@@ -0,0 +1,28 @@
+package se.kth.util;
+
+import com.github.dockerjava.api.model.HostConfig;
+
+/**
+ * The container operations needed to run instrumented tests, implemented by {@link DockerBuild}.
+ */
+public interface ContainerRuntime {
+
+    /**
+     * Starts a container that stays alive until it is removed.
+     *
+     * @return the id of the started container
+     */
+    String startIdleContainer(String imageName, HostConfig hostConfig);
+
+    String executeInContainer(String containerId, String... command);
+
+    /**
+     * Executes the command like {@link #executeInContainer(String, String...)}, but fails unless it exits with 0.
+     *
+     * @return the output of the command
+     * @throws IllegalStateException if the command exited with another code or its exit code is unknown
+     */
+    String executeCheckedInContainer(String containerId, String... command);
+
+    boolean removeContainer(String containerId);
+}
@@ -24,6 +24,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -31,29 +33,68 @@ import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
-public class DockerBuild {
+public class DockerBuild implements ContainerRuntime {
 
     static Logger log = LoggerFactory.getLogger(DockerBuild.class);
     private static DockerClient dockerClient;
     private static final int EXIT_CODE_OK = 0;
 
+    private static volatile Semaphore containerSlots;
+    private static final Set<String> leasedContainers = ConcurrentHashMap.newKeySet();
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * How files that already exist locally are handled when copying files from a container.
+     */
+    public enum ExistingFilePolicy {
+        /** Keep the existing file */
+        SKIP,
+        /** Always replace the existing file */
+        OVERWRITE,
+        /** Replace the existing file only if its size differs from the archived one */
+        VERIFY
+    }
+
+    private ExistingFilePolicy existingFilePolicy = ExistingFilePolicy.SKIP;
+    private final AtomicLong filesCopied = new AtomicLong();
+    private final AtomicLong bytesCopied = new AtomicLong();
+
     public DockerBuild() {
         createDockerClient();
     }
 
+    /**
+     * Caps the number of spinning containers that may run at the same time across all DockerBuild instances.
+     * {@link #startSpinningContainer(String, HostConfig)} blocks until a slot is free, and
+     * {@link #removeContainer(String)} frees it again.
+     *
+     * @param maxContainers the maximum number of concurrently running containers
+     */
+    public static void limitConcurrentContainers(int maxContainers) {
+        containerSlots = new Semaphore(maxContainers, true);
+    }
+
     /**
      * Method to remove Docker container
      *
      * @param containerId - container id
      * @return boolean - true if container is removed successfully, false otherwise
      */
+    @Override
     public boolean removeContainer(String containerId) {
         try {
             dockerClient.removeContainerCmd(containerId).withForce(true).exec();
         } catch (Exception e) {
             log.warn("Failed to remove container with id: {}", containerId);
             return false;
+        } finally {
+            releaseContainerSlot(containerId);
         }
         log.info("Container with id: {} removed successfully", containerId);
         return true;
@@ -69,9 +110,25 @@ public class DockerBuild {
      * the copy failed
      */
     public Path copyProjectFromContainer(String containerId, String project, Path dir) {
+        return copyProjectFromContainer(containerId, project, dir, entryName -> true);
+    }
+
+    /**
+     * Copies the files of a project from a Docker container that match the given filter. The filter is applied
+     * while streaming the archive, files that do not match are never written to disk.
+     *
+     * @param containerId the ID of the Docker container
+     * @param project     the name of the project to copy
+     * @param dir         the directory to copy the project to
+     * @param entryFilter filter on the archive entry names, e.g. "project/src/main/java/Foo.java"
+     * @return the path to the directory where the project was copied, or null if
+     * the copy failed
+     */
+    public Path copyProjectFromContainer(String containerId, String project, Path dir,
+                                         Predicate<String> entryFilter) {
         try (InputStream dependencyStream = dockerClient.copyArchiveFromContainerCmd(containerId, "/" + project)
                 .exec()) {
-            copyFiles(dir, dependencyStream);
+            copyFiles(dir, dependencyStream, entryFilter);
             log.info("Project {} copied successfully", project);
             return dir;
         } catch (Exception e) {
@@ -113,7 +170,10 @@ public class DockerBuild {
         }
     }
 
-    private void createDockerClient() {
+    private static synchronized void createDockerClient() {
+        if (dockerClient != null) {
+            return;
+        }
         DockerClientConfig clientConfig = DefaultDockerClientConfig.createDefaultConfigBuilder()
                 .withDockerHost("unix:///var/run/docker.sock")
                 .withRegistryUrl("https://hub.docker.com")
@@ -139,6 +199,14 @@ public class DockerBuild {
         }
     }
 
+    /**
+     * @param image the name of a locally available image
+     * @return the content-addressed id of the image, e.g. "sha256:..."
+     */
+    public String getImageId(String image) {
+        return dockerClient.inspectImageCmd(image).exec().getId();
+    }
+
     public void copyM2FolderToLocalPath(String containerId, Path fromContainer, Path localPath) {
 
         if (Files.notExists(localPath)) {
@@ -163,22 +231,85 @@ public class DockerBuild {
     }
 
     private void copyFiles(Path localPath, InputStream m2Stream) throws IOException {
+        copyFiles(localPath, m2Stream, entryName -> true);
+    }
+
+    /**
+     * Extracts the matching entries of a tar stream into the local path. Every entry is streamed through a fixed-size
+     * buffer into a file channel, so memory usage does not depend on the size of the copied files.
+     */
+    private void copyFiles(Path localPath, InputStream m2Stream, Predicate<String> entryFilter) throws IOException {
+        long filesCopied = 0;
+        long filesSkipped = 0;
+        long bytesCopied = 0;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        Path root = localPath.toAbsolutePath().normalize();
+
         try (TarArchiveInputStream tarStream = new TarArchiveInputStream(m2Stream)) {
             TarArchiveEntry entry;
             while ((entry = tarStream.getNextTarEntry()) != null) {
-                if (!entry.isDirectory()) {
-                    Path filePath = localPath.resolve(entry.getName());
-
-                    if (!Files.exists(filePath)) {
-                        Files.createDirectories(filePath.getParent());
-                        Files.createFile(filePath);
+                if (!entry.isDirectory() && entryFilter.test(entry.getName())) {
+                    Path filePath = root.resolve(entry.getName()).normalize();
+                    if (!filePath.startsWith(root)) {
+                        log.warn("Skipping archive entry {} outside of {}", entry.getName(), root);
+                        continue;
+                    }
+                    if (!shouldWrite(filePath, entry)) {
+                        filesSkipped++;
+                        continue;
+                    }
 
-                        byte[] fileContent = tarStream.readAllBytes();
-                        Files.write(filePath, fileContent, StandardOpenOption.WRITE);
+                    Files.createDirectories(filePath.getParent());
+                    try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        int read;
+                        while ((read = tarStream.read(buffer)) != -1) {
+                            byteBuffer.clear().limit(read);
+                            while (byteBuffer.hasRemaining()) {
+                                channel.write(byteBuffer);
+                            }
+                            bytesCopied += read;
+                        }
                     }
+                    filesCopied++;
                 }
             }
         }
+
+        this.filesCopied.addAndGet(filesCopied);
+        this.bytesCopied.addAndGet(bytesCopied);
+        log.info("Copied {} files ({} bytes) to {}, skipped {} existing files", filesCopied, bytesCopied, localPath,
+                filesSkipped);
+    }
+
+    private boolean shouldWrite(Path filePath, TarArchiveEntry entry) throws IOException {
+        if (!Files.exists(filePath)) {
+            return true;
+        }
+        return switch (existingFilePolicy) {
+            case SKIP -> false;
+            case OVERWRITE -> true;
+            case VERIFY -> {
+                boolean differs = Files.size(filePath) != entry.getSize();
+                if (differs) {
+                    log.warn("Existing file {} differs from the archive, overwriting it", filePath);
+                }
+                yield differs;
+            }
+        };
+    }
+
+    public long getFilesCopied() {
+        return filesCopied.get();
+    }
+
+    public long getBytesCopied() {
+        return bytesCopied.get();
+    }
+
+    public void setExistingFilePolicy(ExistingFilePolicy existingFilePolicy) {
+        this.existingFilePolicy = existingFilePolicy;
     }
 
     /**
@@ -191,10 +322,48 @@ public class DockerBuild {
      * @return the containerID of the started container
      */
     public String startSpinningContainer(String imageId, HostConfig hostConfig) {
+        Semaphore slots = containerSlots;
+        if (slots != null) {
+            slots.acquireUninterruptibly();
+        }
+        String containerId = null;
+        try {
+            CreateContainerResponse container = dockerClient
+                    .createContainerCmd(imageId)
+                    .withHostConfig(hostConfig)
+                    .withEntrypoint("sh", "-c", "sleep 60")
+                    .exec();
+            containerId = container.getId();
+            if (slots != null) {
+                leasedContainers.add(containerId);
+            }
+
+            dockerClient.startContainerCmd(containerId).exec();
+
+            return containerId;
+        } catch (RuntimeException e) {
+            if (containerId != null) {
+                removeContainer(containerId);
+            } else if (slots != null) {
+                slots.release();
+            }
+            throw e;
+        }
+    }
+
+    private static void releaseContainerSlot(String containerId) {
+        Semaphore slots = containerSlots;
+        if (leasedContainers.remove(containerId) && slots != null) {
+            slots.release();
+        }
+    }
+
+    @Override
+    public String startIdleContainer(String imageId, HostConfig hostConfig) {
         CreateContainerResponse container = dockerClient
                 .createContainerCmd(imageId)
                 .withHostConfig(hostConfig)
-                .withEntrypoint("sh", "-c", "sleep 60")
+                .withEntrypoint("sh", "-c", "sleep infinity")
                 .exec();
 
         dockerClient.startContainerCmd(container.getId()).exec();
@@ -210,15 +379,36 @@ public class DockerBuild {
      * @param command     the command to execute
      * @return the output of the command
      */
+    @Override
     public String executeInContainer(String containerId, String... command) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        execute(containerId, command, outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
 
+    @Override
+    public String executeCheckedInContainer(String containerId, String... command) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        String execId = execute(containerId, command, outputStream);
+        String output = outputStream.toString(StandardCharsets.UTF_8);
+        Long exitCode = dockerClient.inspectExecCmd(execId).exec().getExitCodeLong();
+        if (exitCode == null || exitCode != EXIT_CODE_OK) {
+            throw new IllegalStateException("Command '%s' in container %s exited with code %s: %s"
+                    .formatted(String.join(" ", command), containerId, exitCode, output));
+        }
+        return output;
+    }
+
+    /**
+     * @return the id of the exec instance that ran the command
+     */
+    private String execute(String containerId, String[] command, ByteArrayOutputStream outputStream) {
         ExecCreateCmdResponse response = dockerClient.execCreateCmd(containerId)
                 .withCmd(command)
                 .withAttachStdout(true)
                 .withAttachStderr(true)
                 .exec();
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         try {
             dockerClient.execStartCmd(response.getId()).exec(new ResultCallback.Adapter<Frame>() {
                 @Override
@@ -235,6 +425,6 @@ public class DockerBuild {
         } catch (InterruptedException e) {
             log.error(e.getMessage(), e);
         }
-        return outputStream.toString(StandardCharsets.UTF_8);
+        return response.getId();
     }
 }
@@ -5,8 +5,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
 
 public class FileUtils {
 
@@ -16,10 +19,26 @@ public class FileUtils {
         if (!Files.exists(directory)) {
             try {
                 Files.createDirectory(directory);
+            } catch (FileAlreadyExistsException e) {
+                // Created concurrently by another benchmark worker
             } catch (IOException e) {
                 logger.error("Could not create directory", e);
                 throw new RuntimeException(e);
             }
         }
     }
+
+    /**
+     * Deletes a directory together with all of its contents, if it exists.
+     */
+    public static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
 }
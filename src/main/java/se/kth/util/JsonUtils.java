@@ -1,16 +1,27 @@
 package se.kth.util;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
+import se.kth.model.MethodInvocation;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The JsonUtils class provides a simple interface for writing and reading JSON files
+ * <p>
+ * All JSON handling goes through the single mapper of this class. Readers and writers are immutable and thread-safe,
+ * they are created once and reused so that their (de)serializers are only looked up on first use.
  *
  * @author <a href="mailto:gabsko@kth.se">Gabriel Skoglund</a>
  */
@@ -25,6 +36,14 @@ public class JsonUtils {
     private static final ObjectMapper mapper =
         new ObjectMapper().setDateFormat(new StdDateFormat());
 
+    private static final ObjectReader treeReader = mapper.reader();
+
+    private static final ObjectReader methodInvocationReader = mapper.readerFor(MethodInvocation.class);
+
+    private static final ObjectWriter resultsWriter = mapper.writer(SerializationFeature.INDENT_OUTPUT);
+
+    private static final Map<JavaType, ObjectReader> readersByType = new ConcurrentHashMap<>();
+
     private JsonUtils() { /* Nothing to see here... */ }
 
     /**
@@ -35,12 +54,54 @@ public class JsonUtils {
      */
     public static <T> T readFromFile(Path file, JavaType jsonType) {
         try {
-            return mapper.readValue(Files.readString(file), jsonType);
+            return readersByType.computeIfAbsent(jsonType, mapper::readerFor).readValue(file.toFile());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Parse a JSON document, e.g. a recorded argument or return value, into a tree.
+     */
+    public static JsonNode readTree(String json) throws JsonProcessingException {
+        return treeReader.readTree(json);
+    }
+
+    /**
+     * Read a single JSON value, e.g. a line of a JSON lines file.
+     */
+    public static <T> T readValue(String json, Class<T> type) throws IOException {
+        return readersByType.computeIfAbsent(mapper.constructType(type), mapper::readerFor).readValue(json);
+    }
+
+    /**
+     * Write a value as compact JSON on a single line.
+     */
+    public static String writeValueAsString(Object value) throws JsonProcessingException {
+        return mapper.writeValueAsString(value);
+    }
+
+    /**
+     * @return the reader for the method invocations recorded by the semantic agent.
+     */
+    public static ObjectReader getMethodInvocationReader() {
+        return methodInvocationReader;
+    }
+
+    /**
+     * @return the indenting writer for results and difference reports.
+     */
+    public static ObjectWriter getResultsWriter() {
+        return resultsWriter;
+    }
+
+    /**
+     * @return the {@link JsonFactory} of the underlying {@link ObjectMapper}, for reading token streams.
+     */
+    public static JsonFactory getJsonFactory() {
+        return mapper.getFactory();
+    }
+
     /**
      * @return a {@link TypeFactory} from the underlying {@link ObjectMapper}.
      */
@@ -0,0 +1,95 @@
+package se.kth.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import se.kth.model.JournalEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of benchmark outcomes, one JSON object per line. Every update is appended as soon as it
+ * finishes, so that an interrupted benchmark can be resumed. If an update was run several times, its last entry is
+ * the current one.
+ */
+public class ResultJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultJournal.class);
+
+    private final Path path;
+    /** Whether the journal is known to end with a complete line, checked before the first append */
+    private boolean endsWithNewLine;
+
+    public ResultJournal(Path path) {
+        this.path = path;
+    }
+
+    public synchronized void append(JournalEntry entry) {
+        try {
+            FileUtils.ensureDirectoryExists(path.getParent());
+            String line = JsonUtils.writeValueAsString(entry) + System.lineSeparator();
+            if (!endsWithNewLine && !endsWithNewLine(path)) {
+                // Terminate a line cut off by a crash, so that the new entry starts on a line of its own
+                line = System.lineSeparator() + line;
+            }
+            Files.writeString(path, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                    StandardOpenOption.SYNC);
+            endsWithNewLine = true;
+        } catch (IOException e) {
+            logger.error("Could not append the result of update {} to {}", entry.getId(), path, e);
+        }
+    }
+
+    /**
+     * @return whether the file is empty, does not exist or ends with a line break
+     */
+    private static boolean endsWithNewLine(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return true;
+        }
+        try (SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            channel.position(channel.size() - 1).read(lastByte);
+            return lastByte.get(0) == '\n';
+        }
+    }
+
+    /**
+     * @return the last entry per update id, in the order the updates first appear in the journal. Lines that can not
+     * be read, e.g. a line cut off by a crash, are skipped.
+     */
+    public synchronized Map<String, JournalEntry> readLatest() {
+        Map<String, JournalEntry> latest = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return latest;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                JournalEntry entry = JsonUtils.readValue(line, JournalEntry.class);
+                latest.put(entry.getId(), entry);
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable journal line: {}", line);
+            }
+        }
+        return latest;
+    }
+}
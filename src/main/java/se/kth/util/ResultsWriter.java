@@ -1,16 +1,17 @@
 package se.kth.util;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import se.kth.matching.Difference;
 import se.kth.model.BenchmarkResult;
+import se.kth.model.MetricsSummary;
+import se.kth.model.RunMetrics;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 public class ResultsWriter {
 
@@ -20,17 +21,26 @@ public class ResultsWriter {
         ResultsWriter.saveObject(differences, path);
     }
 
+    public static void saveDifferencesByTargetMethod(Map<String, List<List<Difference>>> differences, Path path) {
+        ResultsWriter.saveObject(differences, path);
+    }
+
     public static void saveBenchmarkResult(List<BenchmarkResult> result, Path path) {
         ResultsWriter.saveObject(result, path);
     }
 
-    private static void saveObject(Object object, Path path) {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+    public static void saveMetrics(RunMetrics metrics, Path path) {
+        ResultsWriter.saveObject(metrics, path);
+    }
+
+    public static void saveMetricsSummary(MetricsSummary summary, Path path) {
+        ResultsWriter.saveObject(summary, path);
+    }
 
+    private static void saveObject(Object object, Path path) {
         try {
             FileUtils.ensureDirectoryExists(path.getParent());
-            mapper.writeValue(new File(path.toString()), object);
+            JsonUtils.getResultsWriter().writeValue(new File(path.toString()), object);
             logger.info("Results written to: {}", path);
         } catch (IOException e) {
             e.printStackTrace();
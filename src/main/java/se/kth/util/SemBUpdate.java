@@ -1,11 +1,18 @@
 package se.kth.util;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 @Getter
 public class SemBUpdate {
 
+    /** The library name in an image tag like "jsoup-1.7.1", i.e. everything before the version */
+    private static final Pattern LIBRARY_PATTERN = Pattern.compile(":(.+?)-\\d");
+
     private final int id;
     private final String preVersionImageName;
     private final String postVersionImageName;
@@ -24,4 +31,13 @@ public class SemBUpdate {
         this.semB = semB;
         this.groundTruth = groundTruth;
     }
+
+    /**
+     * @return the name of the updated library, taken from the tag of the pre-update image, e.g. "jsoup"
+     */
+    @JsonIgnore
+    public String getLibrary() {
+        Matcher matcher = LIBRARY_PATTERN.matcher(preVersionImageName);
+        return matcher.find() ? matcher.group(1) : preVersionImageName;
+    }
 }
@@ -0,0 +1,132 @@
+package se.kth.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Helpers for target methods given as "fqn.your.TargetClass:targetMethod(parameter.Types)".
+ */
+public class TargetMethods {
+
+    /** Separator between target methods in the argument of the semantic agent */
+    public static final String AGENT_ARGUMENT_SEPARATOR = ";";
+
+    /**
+     * Whether the semantic agent accepts several target methods separated by {@link #AGENT_ARGUMENT_SEPARATOR}. The
+     * released agent instruments a single method, so by default every test run instruments one target method.
+     */
+    public static final boolean AGENT_ACCEPTS_TARGET_LISTS = Boolean.getBoolean("semanticanary.agentTargetLists");
+
+    private TargetMethods() {
+    }
+
+    public static String getClassName(String targetMethod) {
+        int separator = targetMethod.indexOf(':');
+        return separator < 0 ? targetMethod : targetMethod.substring(0, separator);
+    }
+
+    public static String getSignature(String targetMethod) {
+        int separator = targetMethod.indexOf(':');
+        return separator < 0 ? "" : targetMethod.substring(separator + 1);
+    }
+
+    public static String getMethodName(String targetMethod) {
+        String signature = getSignature(targetMethod);
+        int parametersStart = signature.indexOf('(');
+        return parametersStart < 0 ? signature : signature.substring(0, parametersStart);
+    }
+
+    /**
+     * @return the target method without its parameter list, which is shared by all overloads of the method
+     */
+    public static String getOverloadKey(String targetMethod) {
+        return getClassName(targetMethod) + ":" + getMethodName(targetMethod);
+    }
+
+    /**
+     * @return whether the target methods are different overloads of the same method
+     */
+    public static boolean isOtherOverload(String targetMethod, String other) {
+        return !targetMethod.equals(other) && getOverloadKey(targetMethod).equals(getOverloadKey(other));
+    }
+
+    /**
+     * Splits the target methods into the groups that are instrumented in one test run each. Overloads of the same
+     * method are put into separate groups, as their recorded invocations can not always be told apart afterwards.
+     */
+    public static List<Set<String>> splitOverloads(Collection<String> targetMethods) {
+        List<Set<String>> groups = new ArrayList<>();
+        for (String targetMethod : new LinkedHashSet<>(targetMethods)) {
+            Set<String> group = groups.stream()
+                    .filter(candidate -> candidate.stream().noneMatch(other -> isOtherOverload(targetMethod, other)))
+                    .findFirst()
+                    .orElseGet(() -> {
+                        Set<String> newGroup = new LinkedHashSet<>();
+                        groups.add(newGroup);
+                        return newGroup;
+                    });
+            group.add(targetMethod);
+        }
+        return groups;
+    }
+
+    /**
+     * @return whether the target methods can be instrumented in the same test run
+     */
+    public static boolean canShareTestRun(String targetMethod, String other) {
+        return targetMethod.equals(other) || AGENT_ACCEPTS_TARGET_LISTS && !isOtherOverload(targetMethod, other);
+    }
+
+    /**
+     * Splits the target methods into the groups that are instrumented in one test run each: one group per target
+     * method, unless the agent accepts several target methods.
+     */
+    public static List<Set<String>> splitIntoTestRuns(Collection<String> targetMethods) {
+        if (AGENT_ACCEPTS_TARGET_LISTS) {
+            return splitOverloads(targetMethods);
+        }
+        return new LinkedHashSet<>(targetMethods).stream()
+                .map(Set::of)
+                .toList();
+    }
+
+    /**
+     * Checks whether a recorded invocation belongs to the given target method. The recorded method name is accepted
+     * both with and without its parameter list.
+     */
+    public static boolean matches(String targetMethod, String className, String methodName) {
+        return getClassName(targetMethod).equals(className) &&
+                (getSignature(targetMethod).equals(methodName) || getMethodName(targetMethod).equals(methodName));
+    }
+
+    /**
+     * Finds the target method a recorded invocation belongs to. A target method whose full signature equals the
+     * recorded method name takes precedence over one that only shares the method name.
+     *
+     * @return the matching target method, or empty if the invocation belongs to none of them
+     */
+    public static Optional<String> resolve(Collection<String> targetMethods, String className, String methodName) {
+        Optional<String> exactMatch = targetMethods.stream()
+                .filter(targetMethod -> getClassName(targetMethod).equals(className) &&
+                        getSignature(targetMethod).equals(methodName))
+                .findFirst();
+        if (exactMatch.isPresent()) {
+            return exactMatch;
+        }
+        return targetMethods.stream()
+                .filter(targetMethod -> matches(targetMethod, className, methodName))
+                .findFirst();
+    }
+
+    public static String toAgentArgument(Collection<String> targetMethods) {
+        if (targetMethods.size() > 1 && !AGENT_ACCEPTS_TARGET_LISTS) {
+            throw new IllegalArgumentException("The semantic agent instruments one target method per test run, got " +
+                    targetMethods);
+        }
+        return String.join(AGENT_ARGUMENT_SEPARATOR, targetMethods);
+    }
+}
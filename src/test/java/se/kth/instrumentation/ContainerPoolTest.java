@@ -0,0 +1,156 @@
+package se.kth.instrumentation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContainerPoolTest {
+
+    private static final String IMAGE = "ghcr.io/chains-project/breaking-updates:jsoup-1.7.1";
+    private static final String OTHER_IMAGE = "ghcr.io/chains-project/breaking-updates:jsoup-1.7.3";
+
+    private final FakeContainerRuntime runtime = new FakeContainerRuntime();
+
+    private ContainerPool createPool(int maxContainers) {
+        return new ContainerPool(runtime, (imageName, slot) -> new HostConfigBuilder("/agent.jar")
+                .withMavenRepositoryVolume(imageName.substring(imageName.indexOf(':') + 1) + "-" + slot)
+                .build(), maxContainers);
+    }
+
+    @Test
+    void reusesReleasedContainerAfterReset() throws InterruptedException {
+        ContainerPool pool = createPool(2);
+
+        String first = pool.acquire(IMAGE);
+        pool.release(first);
+        String second = pool.acquire(IMAGE);
+
+        assertEquals(first, second);
+        // Snapshot when started and reset when released
+        assertEquals(2, runtime.countCommands(first));
+        assertEquals(List.of(first), runtime.getRunningContainers());
+    }
+
+    @Test
+    void givesConcurrentContainersOfAnImageTheirOwnVolume() throws InterruptedException {
+        ContainerPool pool = createPool(3);
+
+        String first = pool.acquire(IMAGE);
+        String second = pool.acquire(IMAGE);
+        String other = pool.acquire(OTHER_IMAGE);
+
+        assertEquals("jsoup-1.7.1-0", runtime.getVolume(first));
+        assertEquals("jsoup-1.7.1-1", runtime.getVolume(second));
+        assertEquals("jsoup-1.7.3-0", runtime.getVolume(other));
+
+        pool.discard(first);
+        String third = pool.acquire(IMAGE);
+        assertEquals("jsoup-1.7.1-0", runtime.getVolume(third));
+    }
+
+    @Test
+    void removesContainerThatCanNotBeReset() throws InterruptedException {
+        ContainerPool pool = createPool(1);
+        String first = pool.acquire(IMAGE);
+
+        runtime.setResetExitCode(1);
+        pool.release(first);
+        runtime.setResetExitCode(0);
+
+        assertEquals(List.of(first), runtime.getRemovedContainers());
+        String second = pool.acquire(IMAGE);
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void removesContainerIfSnapshotFails() throws InterruptedException {
+        ContainerPool pool = createPool(1);
+
+        runtime.setSnapshotExitCode(1);
+        assertThrows(IllegalStateException.class, () -> pool.acquire(IMAGE));
+        runtime.setSnapshotExitCode(0);
+
+        assertEquals(List.of("container-0"), runtime.getRemovedContainers());
+        assertTrue(runtime.getRunningContainers().isEmpty());
+        // The slot of the failed container is free again
+        assertEquals("container-1", pool.acquire(IMAGE));
+    }
+
+    @Test
+    void freesSlotIfContainerCanNotBeStarted() throws InterruptedException {
+        ContainerPool pool = createPool(1);
+
+        runtime.setFailStart(true);
+        assertThrows(RuntimeException.class, () -> pool.acquire(IMAGE));
+        runtime.setFailStart(false);
+
+        assertEquals("container-0", pool.acquire(IMAGE));
+    }
+
+    @Test
+    void discardRemovesContainer() throws InterruptedException {
+        ContainerPool pool = createPool(1);
+        String container = pool.acquire(IMAGE);
+
+        pool.discard(container);
+
+        assertEquals(List.of(container), runtime.getRemovedContainers());
+        assertNotEquals(container, pool.acquire(IMAGE));
+    }
+
+    @Test
+    void evictsIdleContainerOfAnotherImageWhenFull() throws InterruptedException {
+        ContainerPool pool = createPool(1);
+        String first = pool.acquire(IMAGE);
+        pool.release(first);
+
+        String other = pool.acquire(OTHER_IMAGE);
+
+        assertEquals(List.of(first), runtime.getRemovedContainers());
+        assertEquals(List.of(other), runtime.getRunningContainers());
+    }
+
+    @Test
+    void blocksWhileFullUntilAContainerIsReleased() throws Exception {
+        ContainerPool pool = createPool(1);
+        String first = pool.acquire(IMAGE);
+
+        CompletableFuture<String> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.acquire(OTHER_IMAGE);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(waiting.isDone());
+
+        pool.release(first);
+        String other = waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(other), runtime.getRunningContainers());
+    }
+
+    @Test
+    void closeRemovesIdleContainersAndContainersReleasedLater() throws InterruptedException {
+        ContainerPool pool = createPool(2);
+        String idle = pool.acquire(IMAGE);
+        String inUse = pool.acquire(IMAGE);
+        pool.release(idle);
+
+        pool.close();
+        assertEquals(List.of(idle), runtime.getRemovedContainers());
+
+        pool.release(inUse);
+        assertEquals(List.of(idle, inUse), runtime.getRemovedContainers());
+        assertTrue(runtime.getRunningContainers().isEmpty());
+        assertThrows(IllegalStateException.class, () -> pool.acquire(IMAGE));
+    }
+}
@@ -0,0 +1,92 @@
+package se.kth.instrumentation;
+
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Mount;
+import se.kth.util.ContainerRuntime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory container runtime that records the started, executed and removed containers. Starting containers and
+ * the exit codes of the snapshot and reset commands can be made to fail.
+ */
+class FakeContainerRuntime implements ContainerRuntime {
+
+    private final Map<String, String> imageByRunningContainer = new HashMap<>();
+    private final Map<String, String> volumeByContainer = new HashMap<>();
+    private final List<String> removedContainers = new ArrayList<>();
+    private final List<String> commands = new ArrayList<>();
+    private int startedContainers;
+
+    private boolean failStart;
+    private int snapshotExitCode;
+    private int resetExitCode;
+
+    @Override
+    public synchronized String startIdleContainer(String imageName, HostConfig hostConfig) {
+        if (failStart) {
+            throw new RuntimeException("Could not start a container of " + imageName);
+        }
+        String containerId = "container-" + startedContainers++;
+        imageByRunningContainer.put(containerId, imageName);
+        for (Mount mount : hostConfig.getMounts()) {
+            if ("/root/.m2".equals(mount.getTarget())) {
+                volumeByContainer.put(containerId, mount.getSource());
+            }
+        }
+        return containerId;
+    }
+
+    @Override
+    public synchronized String executeInContainer(String containerId, String... command) {
+        commands.add(containerId + ": " + String.join(" ", command));
+        return "";
+    }
+
+    @Override
+    public synchronized String executeCheckedInContainer(String containerId, String... command) {
+        executeInContainer(containerId, command);
+        int exitCode = String.join(" ", command).contains("rm -rf /project") ? resetExitCode : snapshotExitCode;
+        if (exitCode != 0) {
+            throw new IllegalStateException("Command exited with code " + exitCode);
+        }
+        return "";
+    }
+
+    @Override
+    public synchronized boolean removeContainer(String containerId) {
+        removedContainers.add(containerId);
+        return imageByRunningContainer.remove(containerId) != null;
+    }
+
+    synchronized List<String> getRunningContainers() {
+        return List.copyOf(imageByRunningContainer.keySet());
+    }
+
+    synchronized List<String> getRemovedContainers() {
+        return List.copyOf(removedContainers);
+    }
+
+    synchronized String getVolume(String containerId) {
+        return volumeByContainer.get(containerId);
+    }
+
+    synchronized long countCommands(String containerId) {
+        return commands.stream().filter(command -> command.startsWith(containerId + ": ")).count();
+    }
+
+    synchronized void setFailStart(boolean failStart) {
+        this.failStart = failStart;
+    }
+
+    synchronized void setSnapshotExitCode(int snapshotExitCode) {
+        this.snapshotExitCode = snapshotExitCode;
+    }
+
+    synchronized void setResetExitCode(int resetExitCode) {
+        this.resetExitCode = resetExitCode;
+    }
+}
@@ -0,0 +1,131 @@
+package se.kth.instrumentation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link ProjectExtractor} with the local backend against a stub Maven executable that records a canned
+ * method_returns.json naming the directory it was run in.
+ */
+class LocalExecutionBackendTest {
+
+    private static final List<String> TARGET_METHODS = List.of("org.example.Foo:bar(int)");
+
+    @TempDir
+    Path tempDir;
+
+    private Path preCheckout;
+    private Path postCheckout;
+    private Path outputDir;
+
+    @BeforeEach
+    void createCheckouts() throws IOException {
+        preCheckout = createCheckout(tempDir.resolve("a/jsoup"));
+        postCheckout = createCheckout(tempDir.resolve("b/jsoup"));
+        outputDir = tempDir.resolve("output");
+    }
+
+    @Test
+    void fetchesCheckoutsWithTheSameNameIntoSeparateDirectories() throws IOException {
+        ProjectExtractor extractor = new ProjectExtractor(createBackend(CopyMode.SOURCES, true), outputDir,
+                TARGET_METHODS, null);
+
+        Path preOutput = extractor.extract(preCheckout.toString());
+        Path postOutput = extractor.extract(postCheckout.toString());
+
+        assertNotEquals(preOutput, postOutput);
+        assertEquals(outputDir, preOutput.getParent());
+        assertTrue(preOutput.getFileName().toString().startsWith("jsoup-"));
+        assertEquals(preCheckout + System.lineSeparator(),
+                Files.readString(preOutput.resolve("project/method_returns.json")));
+        assertEquals(postCheckout + System.lineSeparator(),
+                Files.readString(postOutput.resolve("project/method_returns.json")));
+    }
+
+    @Test
+    void fetchesOnlySourcesAndRecordedInvocations() throws IOException {
+        ProjectExtractor extractor = new ProjectExtractor(createBackend(CopyMode.SOURCES, true), outputDir,
+                TARGET_METHODS, null);
+
+        Path output = extractor.extract(preCheckout.toString());
+
+        assertEquals(Set.of("project/method_returns.json", "project/src/main/java/org/example/Foo.java",
+                "project/src/test/java/org/example/FooTest.java"), listFiles(output));
+    }
+
+    @Test
+    void fetchesTheWholeProjectInFullMode() throws IOException {
+        ProjectExtractor extractor = new ProjectExtractor(createBackend(CopyMode.FULL, true), outputDir,
+                TARGET_METHODS, null);
+
+        Path output = extractor.extract(preCheckout.toString());
+
+        assertEquals(Set.of("project/method_returns.json", "project/pom.xml",
+                "project/src/main/java/org/example/Foo.java", "project/src/test/java/org/example/FooTest.java",
+                "project/target/generated-sources/Generated.java", "project/target/classes/Foo.class"),
+                listFiles(output));
+    }
+
+    @Test
+    void doesNotKeepInvocationsOfAnEarlierRun() throws IOException {
+        Path output = new ProjectExtractor(createBackend(CopyMode.SOURCES, true), outputDir, TARGET_METHODS, null)
+                .extract(preCheckout.toString());
+        assertTrue(Files.exists(output.resolve("project/method_returns.json")));
+
+        Path rerunOutput = new ProjectExtractor(createBackend(CopyMode.SOURCES, false), outputDir, TARGET_METHODS,
+                null).extract(preCheckout.toString());
+
+        assertEquals(output, rerunOutput);
+        assertFalse(Files.exists(rerunOutput.resolve("project/method_returns.json")));
+    }
+
+    private LocalExecutionBackend createBackend(CopyMode copyMode, boolean recordInvocations) throws IOException {
+        Path stub = tempDir.resolve(recordInvocations ? "mvn-recording" : "mvn-failing");
+        Files.writeString(stub, recordInvocations
+                ? "#!/bin/sh\necho \"$PWD\" > method_returns.json\n"
+                : "#!/bin/sh\nexit 1\n");
+        Files.setPosixFilePermissions(stub, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+        LocalExecutionBackend backend = new LocalExecutionBackend(tempDir.resolve("semantic-agent.jar"));
+        backend.setMavenExecutable(stub.toString());
+        backend.setCopyMode(copyMode);
+        return backend;
+    }
+
+    private static Path createCheckout(Path checkout) throws IOException {
+        write(checkout.resolve("pom.xml"), "<project/>");
+        write(checkout.resolve("src/main/java/org/example/Foo.java"), "class Foo {}");
+        write(checkout.resolve("src/test/java/org/example/FooTest.java"), "class FooTest {}");
+        write(checkout.resolve("target/generated-sources/Generated.java"), "class Generated {}");
+        write(checkout.resolve("target/classes/Foo.class"), "");
+        return checkout.toRealPath();
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static Set<String> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> directory.relativize(file).toString().replace('\\', '/'))
+                    .collect(Collectors.toSet());
+        }
+    }
+}
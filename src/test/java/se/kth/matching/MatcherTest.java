@@ -0,0 +1,78 @@
+package se.kth.matching;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+import se.kth.model.MethodInvocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MatcherTest {
+
+    private static final String TARGET_METHOD = "org.example.Foo:bar(java.lang.String)";
+
+    @Test
+    void pairsCallsWhoseArgumentGainedAField() {
+        List<MethodInvocation> pre = List.of(call("{\"name\":\"a\",\"__meta__\":{\"hash\":\"1\"}}"),
+                call("{\"name\":\"b\",\"__meta__\":{\"hash\":\"2\"}}"),
+                call("{\"name\":\"c\",\"__meta__\":{\"hash\":\"3\"}}"));
+        List<MethodInvocation> post = List.of(call("{\"name\":\"a\",\"added\":1,\"__meta__\":{\"hash\":\"7\"}}"),
+                call("{\"name\":\"c\",\"added\":1,\"__meta__\":{\"hash\":\"9\"}}"));
+
+        for (MatchingStrategy strategy : MatchingStrategy.values()) {
+            Matcher matcher = new Matcher(strategy);
+            List<Pair<MethodInvocation, MethodInvocation>> pairs = matcher.match(inTestMethod(pre),
+                    inTestMethod(post), TARGET_METHOD);
+
+            assertEquals(2, pairs.size(), strategy.name());
+            assertSame(pre.get(0), pairs.get(0).getLeft());
+            assertSame(post.get(0), pairs.get(0).getRight());
+            assertSame(pre.get(2), pairs.get(1).getLeft());
+            assertSame(post.get(1), pairs.get(1).getRight());
+            assertEquals(1, matcher.getUnmatchedInvocations().size());
+            assertSame(pre.get(1), matcher.getUnmatchedInvocations().getFirst().invocation());
+            assertEquals(TARGET_METHOD, matcher.getUnmatchedInvocations().getFirst().targetMethod());
+        }
+    }
+
+    @Test
+    void prefersCallsWithTheSameFingerprint() {
+        List<MethodInvocation> pre = List.of(call("{\"name\":\"a\"}"), call("{\"name\":\"a\",\"added\":1}"));
+        List<MethodInvocation> post = List.of(call("{\"name\":\"a\",\"added\":1}"), call("{\"name\":\"a\"}"),
+                call("{\"name\":\"b\"}"));
+
+        List<Pair<MethodInvocation, MethodInvocation>> pairs = new Matcher().match(inTestMethod(pre),
+                inTestMethod(post), TARGET_METHOD);
+
+        assertEquals(List.of(Pair.of(pre.get(0), post.get(1)), Pair.of(pre.get(1), post.get(0))), pairs);
+    }
+
+    @Test
+    void leavesCallsWithDifferentValuesUnmatched() {
+        List<MethodInvocation> pre = new ArrayList<>();
+        List<MethodInvocation> post = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            pre.add(call("{\"value\":" + i + "}"));
+            post.add(call("{\"value\":" + (i + 1000) + ",\"added\":true}"));
+        }
+        post.add(call("{\"value\":-1}"));
+
+        Matcher matcher = new Matcher();
+        assertEquals(List.of(), matcher.match(inTestMethod(pre), inTestMethod(post), TARGET_METHOD));
+        assertEquals(pre.size() + post.size(), matcher.getUnmatchedInvocations().size());
+    }
+
+    private static List<Pair<String, MethodInvocation>> inTestMethod(List<MethodInvocation> invocations) {
+        return invocations.stream()
+                .map(invocation -> Pair.of("org.example.FooTest#test", invocation))
+                .toList();
+    }
+
+    private static MethodInvocation call(String argument) {
+        StackTraceElement[] stackTrace = {new StackTraceElement("org.example.FooTest", "test", "FooTest.java", 12)};
+        return new MethodInvocation("org.example.Foo", "bar", stackTrace, "[" + argument + "]", "null");
+    }
+}
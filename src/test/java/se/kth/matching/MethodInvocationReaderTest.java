@@ -0,0 +1,59 @@
+package se.kth.matching;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.model.MethodInvocation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MethodInvocationReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readsAllInvocationsInOrder() throws IOException {
+        Path file = write(invocation("first"), invocation("second"));
+
+        assertEquals(List.of("first", "second"), readMethodNames(file));
+    }
+
+    @Test
+    void skipsTruncatedLineWithoutLosingTheNextOne() throws IOException {
+        String truncated = invocation("truncated");
+        Path file = write(invocation("first"), truncated.substring(0, truncated.length() / 2), invocation("second"));
+
+        assertEquals(List.of("first", "second"), readMethodNames(file));
+    }
+
+    @Test
+    void skipsTruncatedLastLineAndBlankLines() throws IOException {
+        String truncated = invocation("truncated");
+        Path file = write(invocation("first"), "", truncated.substring(0, truncated.length() - 3));
+
+        assertEquals(List.of("first"), readMethodNames(file));
+    }
+
+    private Path write(String... lines) throws IOException {
+        return Files.write(tempDir.resolve("method_returns.json"), List.of(lines));
+    }
+
+    private static List<String> readMethodNames(Path file) throws IOException {
+        try (Stream<MethodInvocation> invocations = MethodInvocationReader.stream(file)) {
+            return invocations.map(MethodInvocation::getMethodName).toList();
+        }
+    }
+
+    private static String invocation(String methodName) {
+        return """
+                {"className":"org.example.Foo","methodName":"%s","stackTrace":[{"declaringClass":"org.example.FooTest",\
+                "methodName":"test","fileName":"FooTest.java","lineNumber":12}],"arguments":"[1]",\
+                "returnValue":"{\\"value\\":\\"text\\"}"}""".formatted(methodName);
+    }
+}
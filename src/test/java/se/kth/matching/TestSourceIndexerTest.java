@@ -0,0 +1,125 @@
+package se.kth.matching;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.extractor.SpoonLocalizer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestSourceIndexerTest {
+
+    private static final String TEST_FILE = "SampleTest.java";
+
+    private static final List<String> TEST_SOURCE = List.of(
+            "package org.example;",                                    // 1
+            "",                                                        // 2
+            "import org.junit.jupiter.api.BeforeEach;",                // 3
+            "import org.junit.jupiter.api.Test;",                      // 4
+            "",                                                        // 5
+            "class SampleTest {",                                      // 6
+            "",                                                        // 7
+            "    private final Calculator calculator = new Calculator();", // 8
+            "",                                                        // 9
+            "    @BeforeEach",                                         // 10
+            "    void setUp() {",                                      // 11
+            "        calculator.reset();",                             // 12
+            "    }",                                                   // 13
+            "",                                                        // 14
+            "    @Test",                                               // 15
+            "    void addsNumbers() {",                                // 16
+            "        int sum = calculator.add(1, 2);",                 // 17
+            "        Runnable check = new Runnable() {",               // 18
+            "            @Override",                                   // 19
+            "            public void run() {",                         // 20
+            "                calculator.add(sum, 3);",                 // 21
+            "            }",                                           // 22
+            "        };",                                              // 23
+            "        check.run();",                                    // 24
+            "        class Local {",                                   // 25
+            "            int twice() {",                               // 26
+            "                return calculator.add(sum, sum);",        // 27
+            "            }",                                           // 28
+            "        }",                                               // 29
+            "        new Local().twice();",                            // 30
+            "        Runnable lambda = () -> calculator.add(4, 5);",   // 31
+            "    }",                                                   // 32
+            "",                                                        // 33
+            "    @Test",                                               // 34
+            "    void oneLiner() { helper(); }",                       // 35
+            "",                                                        // 36
+            "    private void helper() {",                             // 37
+            "        calculator.add(6, 7);",                           // 38
+            "    }",                                                   // 39
+            "}");                                                      // 40
+
+    @TempDir
+    static Path projectDir;
+
+    private static TestMethodIndex modelIndex;
+    private static TestMethodIndex lightweightIndex;
+
+    @BeforeAll
+    static void indexProject() throws IOException {
+        Path testDir = Files.createDirectories(projectDir.resolve("src/test/java/org/example"));
+        Files.write(testDir.resolve(TEST_FILE), TEST_SOURCE);
+        Files.write(testDir.resolve("OtherTest.java"), List.of(
+                "package org.example;",
+                "class OtherTest {",
+                "    @org.junit.jupiter.api.Test",
+                "    void other() {",
+                "        new Calculator().add(1, 1);",
+                "    }",
+                "}"));
+        Path mainDir = Files.createDirectories(projectDir.resolve("src/main/java/org/example"));
+        Files.write(mainDir.resolve("Calculator.java"), List.of(
+                "package org.example;",
+                "class Calculator {",
+                "    int add(int a, int b) {",
+                "        return a + b;",
+                "    }",
+                "    void reset() {",
+                "    }",
+                "}"));
+
+        modelIndex = TestMethodIndex.build(new SpoonLocalizer(projectDir));
+        lightweightIndex = TestSourceIndexer.index(projectDir, Set.of(TEST_FILE, "Calculator.java"));
+    }
+
+    @Test
+    void resolvesEveryLineLikeTheModelIndex() {
+        for (int line = 1; line <= TEST_SOURCE.size(); line++) {
+            assertEquals(modelIndex.lookup(TEST_FILE, line), lightweightIndex.lookup(TEST_FILE, line),
+                    "line " + line + ": " + TEST_SOURCE.get(line - 1));
+        }
+    }
+
+    @Test
+    void resolvesOnlyStatementsInsideTestMethodBodies() {
+        assertEquals(Optional.of("setUp"), lightweightIndex.lookup(TEST_FILE, 12));
+        assertEquals(Optional.of("addsNumbers"), lightweightIndex.lookup(TEST_FILE, 17));
+        assertEquals(Optional.of("addsNumbers"), lightweightIndex.lookup(TEST_FILE, 18));
+        assertEquals(Optional.of("addsNumbers"), lightweightIndex.lookup(TEST_FILE, 24));
+        assertEquals(Optional.of("addsNumbers"), lightweightIndex.lookup(TEST_FILE, 30));
+        assertEquals(Optional.of("addsNumbers"), lightweightIndex.lookup(TEST_FILE, 31));
+
+        for (int line : new int[]{8, 10, 11, 13, 15, 16, 21, 27, 32, 35, 38}) {
+            assertEquals(Optional.empty(), lightweightIndex.lookup(TEST_FILE, line),
+                    "line " + line + ": " + TEST_SOURCE.get(line - 1));
+        }
+    }
+
+    @Test
+    void indexesOnlyTheNamedTestSources() {
+        assertEquals(Optional.of("other"), modelIndex.lookup("OtherTest.java", 5));
+        assertEquals(Optional.empty(), lightweightIndex.lookup("OtherTest.java", 5));
+        assertEquals(Optional.empty(), lightweightIndex.lookup("Calculator.java", 4));
+    }
+}
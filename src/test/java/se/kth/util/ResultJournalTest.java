@@ -0,0 +1,57 @@
+package se.kth.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.model.JournalEntry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void keepsTheLastEntryPerUpdate() {
+        ResultJournal journal = new ResultJournal(tempDir.resolve("results.jsonl"));
+        journal.append(entry("1", JournalEntry.Status.FAILED));
+        journal.append(entry("2", JournalEntry.Status.COMPLETED));
+        journal.append(entry("1", JournalEntry.Status.COMPLETED));
+
+        Map<String, JournalEntry> latest = journal.readLatest();
+
+        assertEquals(2, latest.size());
+        assertTrue(latest.get("1").isCompleted());
+        assertTrue(latest.get("2").isCompleted());
+    }
+
+    @Test
+    void appendsAfterATruncatedLastLineOnANewLine() throws IOException {
+        Path path = tempDir.resolve("results.jsonl");
+        String complete = JsonUtils.writeValueAsString(entry("1", JournalEntry.Status.COMPLETED));
+        String truncated = JsonUtils.writeValueAsString(entry("2", JournalEntry.Status.COMPLETED));
+        Files.writeString(path, complete + System.lineSeparator() + truncated.substring(0, truncated.length() / 2));
+
+        ResultJournal resumed = new ResultJournal(path);
+        resumed.append(entry("3", JournalEntry.Status.COMPLETED));
+        resumed.append(entry("4", JournalEntry.Status.FAILED));
+
+        Map<String, JournalEntry> latest = resumed.readLatest();
+        assertEquals(3, latest.size());
+        assertTrue(latest.get("1").isCompleted());
+        assertFalse(latest.containsKey("2"));
+        assertTrue(latest.get("3").isCompleted());
+        assertFalse(latest.get("4").isCompleted());
+    }
+
+    private static JournalEntry entry(String id, JournalEntry.Status status) {
+        return new JournalEntry(id, status, true, true, status == JournalEntry.Status.COMPLETED, 0);
+    }
+}
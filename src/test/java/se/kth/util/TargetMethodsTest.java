@@ -0,0 +1,41 @@
+package se.kth.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TargetMethodsTest {
+
+    @Test
+    void splitsOverloadsIntoSeparateGroups() {
+        List<Set<String>> groups = TargetMethods.splitOverloads(List.of("A:foo(int)", "A:bar()", "A:foo(String)",
+                "B:foo(int)", "A:foo(int)"));
+
+        assertEquals(List.of(Set.of("A:foo(int)", "A:bar()", "B:foo(int)"), Set.of("A:foo(String)")), groups);
+    }
+
+    @Test
+    void splitsIntoOneTestRunPerTargetMethodByDefault() {
+        assertEquals(List.of(Set.of("A:foo(int)"), Set.of("A:bar()")),
+                TargetMethods.splitIntoTestRuns(List.of("A:foo(int)", "A:bar()", "A:foo(int)")));
+    }
+
+    @Test
+    void rejectsSeveralTargetMethodsForTheAgentByDefault() {
+        assertEquals("A:foo(int)", TargetMethods.toAgentArgument(List.of("A:foo(int)")));
+        assertThrows(IllegalArgumentException.class,
+                () -> TargetMethods.toAgentArgument(List.of("A:foo(int)", "A:bar()")));
+    }
+
+    @Test
+    void resolvesInvocationsToTheirOwnOverload() {
+        List<String> targetMethods = List.of("A:foo(int)", "A:foo(String)");
+
+        assertEquals("A:foo(String)", TargetMethods.resolve(targetMethods, "A", "foo(String)").orElseThrow());
+        assertEquals("A:foo(int)", TargetMethods.resolve(targetMethods, "A", "foo").orElseThrow());
+    }
+}